@@ -0,0 +1,55 @@
+package br.com.dicasdeumdev.api.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+@Configuration
+//Habilita o cache de leitura (Caffeine) - tamanho, TTL e estatísticas definidos em spring.cache.caffeine.spec
+@EnableCaching(order = CacheConfig.ORDER)
+public class CacheConfig {
+
+    //Ordem do interceptor de cache - antes do TimedAspect (@Timed), que não declara ordem e fica com
+    //LOWEST_PRECEDENCE: um hit do cache retorna sem passar pelo timer, que mede só as cargas do banco
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+
+    //Cache de usuários por ID, utilizado pelo UserServiceImpl
+    public static final String USERS = "users";
+
+    //Cache negativo de IDs inexistentes - repetidos 404 sem consulta ao banco
+    public static final String MISSING_USERS = "missingUsers";
+
+    //ID criado por Idempotency-Key - repetições do POST /user devolvem o mesmo 201 sem chamar o service
+    public static final String IDEMPOTENCY_KEYS = "idempotencyKeys";
+
+    //O cache negativo precisa de um TTL curto próprio, diferente do spec compartilhado do cache de usuários
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> missingUsersCacheCustomizer(
+            @Value("${api.cache.missing-users.ttl:30s}") Duration ttl,
+            @Value("${api.cache.missing-users.maximum-size:100000}") long maximumSize) {
+        return cacheManager -> cacheManager.registerCustomCache(MISSING_USERS, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build());
+    }
+
+    //As chaves precisam sobreviver à janela de retentativas dos clientes, limitadas por tamanho
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> idempotencyKeysCacheCustomizer(
+            @Value("${api.idempotency.ttl:24h}") Duration ttl,
+            @Value("${api.idempotency.maximum-size:100000}") long maximumSize) {
+        return cacheManager -> cacheManager.registerCustomCache(IDEMPOTENCY_KEYS, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build());
+    }
+}
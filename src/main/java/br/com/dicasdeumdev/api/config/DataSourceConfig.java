@@ -0,0 +1,24 @@
+package br.com.dicasdeumdev.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+//O DataSource automático do Spring Boot não é criado quando existe um ConnectionFactory R2DBC no contexto
+//Declarado aqui, o JPA continua funcionando junto da variante reativa - mesmas propriedades spring.datasource.*
+//Só com o R2DBC configurado (profile reactive) - na variante servlet o DataSource automático é utilizado
+@ConditionalOnProperty(prefix = "spring.r2dbc", name = "url")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
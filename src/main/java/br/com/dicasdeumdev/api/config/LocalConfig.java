@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.List;
 
@@ -17,10 +18,13 @@ public class LocalConfig {
     @Autowired
     private UserRepository repository;
 
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
     @Bean
     public void startDB() {
-        User u1 = new User(null, "Valdir", "valdir@mail.com", "123");
-        User u2 = new User(null, "Luiz", "luiz@mail.com", "123");
+        User u1 = new User(null, "Valdir", "valdir@mail.com", passwordEncoder.encode("123"));
+        User u2 = new User(null, "Luiz", "luiz@mail.com", passwordEncoder.encode("123"));
 
         repository.saveAll(List.of(u1, u2));
     }
@@ -0,0 +1,41 @@
+package br.com.dicasdeumdev.api.config;
+
+import br.com.dicasdeumdev.api.metrics.QueryCountInspector;
+import br.com.dicasdeumdev.api.metrics.QueryCountInterceptor;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+//Métricas da aplicação - expostas em /actuator/prometheus
+public class MetricsConfig implements WebMvcConfigurer {
+
+    private final QueryCountInspector inspector = new QueryCountInspector();
+
+    @Autowired
+    private MeterRegistry registry;
+
+    //Habilita o @Timed nos métodos dos services
+    //Sem ordem própria (LOWEST_PRECEDENCE) - executa depois do cache (CacheConfig.ORDER), hits não são medidos
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    //Registra o contador de comandos SQL no Hibernate
+    @Bean
+    public HibernatePropertiesCustomizer queryCountCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        interceptors.addInterceptor(new QueryCountInterceptor(inspector, registry));
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.dicasdeumdev.api.config;
+
+import br.com.dicasdeumdev.api.services.support.PasswordHasher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class PasswordConfig {
+
+    //Custo do bcrypt (log2 das iterações) - cada +1 dobra o tempo de CPU por hash
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${api.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    //Pool com uma thread por núcleo (api.password.threads=0) e fila limitada - com a fila cheia o hash é
+    //executado na thread que o solicitou (CallerRunsPolicy), que deixa de enviar novos até concluir
+    //O pool não é registrado como Executor para não substituir o applicationTaskExecutor do Spring Boot
+    @Bean(destroyMethod = "shutdown")
+    public PasswordHasher passwordHasher(PasswordEncoder passwordEncoder, MeterRegistry registry,
+                                         @Value("${api.password.threads:0}") int threads,
+                                         @Value("${api.password.queue-capacity:100}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        //Métricas do pool (executor.active, executor.queued, executor.completed) com a tag name=passwordHash
+        return new PasswordHasher(passwordEncoder, ExecutorServiceMetrics.monitor(registry, executor, "passwordHash"));
+    }
+}
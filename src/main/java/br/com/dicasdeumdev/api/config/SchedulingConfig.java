@@ -0,0 +1,10 @@
+package br.com.dicasdeumdev.api.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+//Habilita as tarefas periódicas (@Scheduled), como a manutenção do índice de e-mails
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -3,6 +3,7 @@ package br.com.dicasdeumdev.api.domain;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 
@@ -10,14 +11,29 @@ import javax.persistence.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+//UPDATE gerado com apenas as colunas alteradas (PATCH) - sem reescrever a senha e os demais campos
+@DynamicUpdate
+//Índice da busca por prefixo do nome - (name, id) cobre o filtro e a ordenação da continuação por chave
+//A busca por prefixo do e-mail utiliza o índice da constraint unique
+@Table(indexes = @Index(name = "idx_user_name_id", columnList = "name, id"))
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //Sequence com alocação em blocos (pooled) - permite o batch de INSERTs do Hibernate, que o IDENTITY desabilita
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
     private Integer id;
     private String name;
 
     @Column(unique = true)
     private String email;
     private String password;
+
+    //Versão do registro (lock otimista) - incrementada a cada UPDATE e utilizada como ETag
+    @Version
+    private Long version;
+
+    public User(Integer id, String name, String email, String password) {
+        this(id, name, email, password, null);
+    }
 }
@@ -0,0 +1,37 @@
+package br.com.dicasdeumdev.api.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+//Índice em createdAt para a limpeza periódica (deleteByCreatedAtBefore) não varrer a tabela inteira
+@Table(indexes = @Index(name = "idx_user_event_created_at", columnList = "createdAt"))
+//Evento de alteração de usuário (outbox) - gravado na mesma transação da alteração
+//O ID é o offset dos consumidores: GET /user/events?after=<último ID recebido>
+public class UserEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_event_seq")
+    @SequenceGenerator(name = "user_event_seq", sequenceName = "user_event_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private Type type;
+    private Integer userId;
+
+    //Estado do usuário após a alteração (sem a senha) - vazio no DELETED
+    private String name;
+    private String email;
+    private Long version;
+
+    private Instant createdAt;
+}
@@ -0,0 +1,20 @@
+package br.com.dicasdeumdev.api.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Setter @Getter
+@AllArgsConstructor
+@NoArgsConstructor
+//Resultado da exclusão em lote
+public class UserBatchDeleteResultDTO {
+
+    //Quantidade de usuários excluídos
+    private Integer deleted;
+    //IDs informados que não existiam
+    private List<Integer> notFound;
+}
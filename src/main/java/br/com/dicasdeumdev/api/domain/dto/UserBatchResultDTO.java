@@ -0,0 +1,23 @@
+package br.com.dicasdeumdev.api.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Setter @Getter
+@AllArgsConstructor
+@NoArgsConstructor
+//Resultado de cada item de uma operação em lote
+public class UserBatchResultDTO {
+
+    //Posição do item na lista recebida
+    private Integer index;
+    //ID gerado, quando o item foi criado
+    private Integer id;
+    private String email;
+    //Status Http do item
+    private Integer status;
+    //mensagem do erro, quando o item foi rejeitado
+    private String error;
+}
@@ -17,4 +17,9 @@ public class UserDTO {
 
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
+
+    //Utilizado pelas projeções de leitura do UserRepository - a senha não é consultada
+    public UserDTO(Integer id, String name, String email) {
+        this(id, name, email, null);
+    }
 }
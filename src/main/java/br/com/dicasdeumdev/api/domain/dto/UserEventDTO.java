@@ -0,0 +1,25 @@
+package br.com.dicasdeumdev.api.domain.dto;
+
+import br.com.dicasdeumdev.api.domain.UserEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Setter @Getter
+@AllArgsConstructor
+@NoArgsConstructor
+//Evento de alteração entregue aos consumidores
+public class UserEventDTO {
+
+    //Offset do evento - a próxima consulta continua após o último ID recebido
+    private Long id;
+    private UserEvent.Type type;
+    private Integer userId;
+    private String name;
+    private String email;
+    private Long version;
+    private Instant createdAt;
+}
@@ -0,0 +1,24 @@
+package br.com.dicasdeumdev.api.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Setter @Getter
+@AllArgsConstructor
+@NoArgsConstructor
+//Resultado da importação de usuários
+public class UserImportResultDTO {
+
+    //Linhas lidas do arquivo (sem contar cabeçalho e linhas em branco)
+    private Long processed;
+    //Usuários criados
+    private Long created;
+    //Linhas rejeitadas
+    private Long rejected;
+    //Erros por linha (index = número da linha no arquivo), limitados às primeiras rejeições
+    private List<UserBatchResultDTO> errors;
+}
@@ -0,0 +1,11 @@
+package br.com.dicasdeumdev.api.mappers;
+
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+
+//Conversão entre Entidade e DTO - implementação escolhida pela propriedade api.mapper
+public interface UserMapper {
+
+    UserDTO toDTO(User user);
+    User toEntity(UserDTO dto);
+}
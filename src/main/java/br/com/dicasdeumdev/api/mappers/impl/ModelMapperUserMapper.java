@@ -0,0 +1,28 @@
+package br.com.dicasdeumdev.api.mappers.impl;
+
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.mappers.UserMapper;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+//Implementação anterior, via ModelMapper (reflexão) - habilitada com api.mapper=modelmapper
+@ConditionalOnProperty(name = "api.mapper", havingValue = "modelmapper")
+public class ModelMapperUserMapper implements UserMapper {
+
+    @Autowired
+    private ModelMapper mapper;
+
+    @Override
+    public UserDTO toDTO(User user) {
+        return user == null ? null : mapper.map(user, UserDTO.class);
+    }
+
+    @Override
+    public User toEntity(UserDTO dto) {
+        return dto == null ? null : mapper.map(dto, User.class);
+    }
+}
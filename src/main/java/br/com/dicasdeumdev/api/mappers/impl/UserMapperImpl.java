@@ -0,0 +1,30 @@
+package br.com.dicasdeumdev.api.mappers.impl;
+
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.mappers.UserMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+//Implementação padrão - copia campo a campo pelos getters/setters, sem reflexão a cada chamada
+@ConditionalOnProperty(name = "api.mapper", havingValue = "compiled", matchIfMissing = true)
+public class UserMapperImpl implements UserMapper {
+
+    @Override
+    public UserDTO toDTO(User user) {
+        if (user == null) {
+            return null;
+        }
+        //A senha é copiada como no ModelMapper - o UserDTO não a serializa (WRITE_ONLY)
+        return new UserDTO(user.getId(), user.getName(), user.getEmail(), user.getPassword());
+    }
+
+    @Override
+    public User toEntity(UserDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        return new User(dto.getId(), dto.getName(), dto.getEmail(), dto.getPassword());
+    }
+}
@@ -0,0 +1,23 @@
+package br.com.dicasdeumdev.api.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+//Conta os comandos SQL preparados pelo Hibernate na thread atual - não altera o SQL
+public class QueryCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    public void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public int count() {
+        return COUNT.get()[0];
+    }
+}
@@ -0,0 +1,46 @@
+package br.com.dicasdeumdev.api.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Registra quantos comandos SQL cada requisição executou (api.db.queries), por método e URI
+public class QueryCountInterceptor implements HandlerInterceptor {
+
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final QueryCountInspector inspector;
+    private final MeterRegistry registry;
+    //Um DistributionSummary por método e URI, criado na primeira requisição e reutilizado nas seguintes
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public QueryCountInterceptor(QueryCountInspector inspector, MeterRegistry registry) {
+        this.inspector = inspector;
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        inspector.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String method = request.getMethod();
+        String uri = pattern == null ? UNKNOWN : pattern.toString();
+        summaries.computeIfAbsent(method + ' ' + uri, key -> DistributionSummary.builder("api.db.queries")
+                        .description("Comandos SQL executados por requisição")
+                        .tag("method", method)
+                        .tag("uri", uri)
+                        .register(registry))
+                .record(inspector.count());
+    }
+}
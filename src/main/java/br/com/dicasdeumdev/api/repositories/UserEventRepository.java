@@ -0,0 +1,33 @@
+package br.com.dicasdeumdev.api.repositories;
+
+import br.com.dicasdeumdev.api.domain.UserEvent;
+import br.com.dicasdeumdev.api.domain.dto.UserEventDTO;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface UserEventRepository extends JpaRepository<UserEvent, Long> {
+
+    //Eventos após o offset informado, em ordem - percorre a chave primária a partir do offset
+    @Query("select new br.com.dicasdeumdev.api.domain.dto.UserEventDTO(e.id, e.type, e.userId, e.name, e.email, e.version, e.createdAt) " +
+            "from UserEvent e where e.id > :after order by e.id")
+    List<UserEventDTO> findAfter(@Param("after") Long after, Pageable pageable);
+
+    //Maior offset gravado - ponto de partida da alocação de IDs na inicialização
+    @Query("select coalesce(max(e.id), 0) from UserEvent e")
+    long findMaxId();
+
+    //Retenção - remove os eventos anteriores ao instante informado
+    @Transactional
+    @Modifying
+    @Query("delete from UserEvent e where e.createdAt < :before")
+    int deleteByCreatedAtBefore(@Param("before") Instant before);
+}
@@ -1,12 +1,99 @@
 package br.com.dicasdeumdev.api.repositories;
 
 import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
+
+    //Expressão construtora do UserDTO utilizada nas projeções
+    String USER_DTO = "new br.com.dicasdeumdev.api.domain.dto.UserDTO(u.id, u.name, u.email)";
+
     Optional<User> findByEmail(String email);
+
+    //Retorna apenas os e-mails já cadastrados dentre os informados - uma única consulta para o lote inteiro
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findEmailsIn(@Param("emails") Collection<String> emails);
+
+    //Consultas de leitura com projeção direta para o DTO - selecionam apenas id, nome e e-mail (sem a senha)
+    //e não criam entidades gerenciadas (nem snapshots para o dirty checking) no contexto de persistência
+    @Query("select " + USER_DTO + " from User u")
+    List<UserDTO> findAllProjected();
+
+    @Query(value = "select " + USER_DTO + " from User u", countQuery = "select count(u) from User u")
+    Page<UserDTO> findAllProjected(Pageable pageable);
+
+    //Paginação por chave (keyset) - usa o índice da PK, o custo não cresce com a profundidade da página
+    @Query("select " + USER_DTO + " from User u where u.id > :id order by u.id")
+    List<UserDTO> findProjectedByIdGreaterThan(@Param("id") Integer id, Pageable pageable);
+
+    //Busca por prefixo do nome (LIKE 'prefixo%' usa o índice idx_user_name_id) - continua após o par (nome, ID)
+    //O "name >= :afterName" é redundante, mas é o limite que o índice consegue usar - sozinho, o OR faz o
+    //banco percorrer o índice desde o início do prefixo e descartar as linhas das páginas anteriores
+    @Query("select " + USER_DTO + " from User u where u.name like :prefix escape '\\' and u.name >= :afterName " +
+            "and (u.name > :afterName or (u.name = :afterName and u.id > :afterId)) order by u.name, u.id")
+    List<UserDTO> searchByName(@Param("prefix") String prefix, @Param("afterName") String afterName,
+                               @Param("afterId") Integer afterId, Pageable pageable);
+
+    //Busca por prefixo do e-mail (índice unique) - o e-mail é único, a continuação usa apenas o último e-mail
+    @Query("select " + USER_DTO + " from User u where u.email like :prefix escape '\\' " +
+            "and u.email > :afterEmail order by u.email")
+    List<UserDTO> searchByEmail(@Param("prefix") String prefix, @Param("afterEmail") String afterEmail,
+                                Pageable pageable);
+
+    //Cursor sobre toda a tabela - deve ser consumido dentro de uma transação e fechado ao final
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select " + USER_DTO + " from User u order by u.id")
+    Stream<UserDTO> streamAll();
+
+    //Apenas a versão do registro - conferência de ETag sem carregar a entidade
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Integer id);
+
+    //Versão da coleção inteira: muda a cada INSERT (maior ID - a sequence só cresce), DELETE (quantidade) e UPDATE (soma das versões)
+    @Query("select concat(str(count(u)), '-', str(coalesce(max(u.id), 0)), '-', str(coalesce(sum(u.version), 0))) from User u")
+    String findCollectionVersion();
+
+    //IDs existentes dentre os informados - sem carregar as entidades
+    @Query("select u.id from User u where u.id in :ids")
+    List<Integer> findIdsIn(@Param("ids") Collection<Integer> ids);
+
+    //DELETE direto de um lote de IDs em um único comando - retorna a quantidade de linhas excluídas
+    @Transactional
+    @Modifying
+    @Query("delete from User u where u.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Integer> ids);
+
+    //UPDATE direto, sem o SELECT do merge - incrementa a versão e retorna as linhas afetadas (0 = ID inexistente)
+    @Transactional
+    @Modifying
+    @Query("update User u set u.name = :name, u.email = :email, u.password = :password, u.version = u.version + 1 " +
+            "where u.id = :id")
+    int updateById(@Param("id") Integer id, @Param("name") String name,
+                   @Param("email") String email, @Param("password") String password);
+
+    //UPDATE condicionado à versão (If-Match) - 0 linhas quando o registro foi alterado por outra requisição
+    @Transactional
+    @Modifying
+    @Query("update User u set u.name = :name, u.email = :email, u.password = :password, u.version = u.version + 1 " +
+            "where u.id = :id and u.version = :version")
+    int updateByIdAndVersion(@Param("id") Integer id, @Param("name") String name, @Param("email") String email,
+                             @Param("password") String password, @Param("version") Long version);
 }
@@ -0,0 +1,32 @@
+package br.com.dicasdeumdev.api.resources;
+
+import br.com.dicasdeumdev.api.services.exceptions.PreconditionFailedException;
+
+//Conversão entre a versão do User e o ETag forte utilizado pelo UserResource e pelo ReactiveUserResource
+final class ETags {
+
+    private ETags() {
+    }
+
+    //ETag forte (entre aspas)
+    static String etag(Object version) {
+        return "\"" + version + "\"";
+    }
+
+    //Versão do If-Match - ausente ou "*" atualiza sem conferir a versão
+    //O If-Match exige comparação forte: ETag fraco (W/) ou inválido nunca confere
+    static Long version(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ex) {
+                //ETag que não foi gerado pela API
+            }
+        }
+        throw new PreconditionFailedException("If-Match inválido: " + ifMatch);
+    }
+}
@@ -0,0 +1,123 @@
+package br.com.dicasdeumdev.api.resources;
+
+import br.com.dicasdeumdev.api.domain.dto.UserBatchDeleteResultDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchResultDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.mappers.UserMapper;
+import br.com.dicasdeumdev.api.services.ReactiveUserService;
+import br.com.dicasdeumdev.api.services.support.UserQueries;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+@RequestMapping(value = "/user")
+//Mesmo contrato do UserResource, servido pelo WebFlux - profile reactive
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserResource {
+
+    private static final String ID = "/{id}";
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private UserMapper mapper;
+
+    @Autowired
+    private ReactiveUserService service;
+
+    //Com ETag na resposta o WebFlux já responde 304 quando o If-None-Match confere
+    @GetMapping(value = ID)
+    public Mono<ResponseEntity<UserDTO>> findById(@PathVariable Integer id) {
+        return service.findById(id).map(x -> ResponseEntity.ok().eTag(ETags.etag(x.getVersion())).body(mapper.toDTO(x)));
+    }
+
+    @GetMapping
+    public Flux<UserDTO> findAll() {
+        return service.findAll().map(x -> mapper.toDTO(x));
+    }
+
+    //Consulta paginada - /user?page=0&size=20
+    //Página negativa vira a primeira e o tamanho fica entre 1 e MAX_PAGE_SIZE
+    //page e limit são exclusivos, senão as duas consultas casariam com a mesma requisição
+    @GetMapping(params = {"page", "!limit"})
+    public Mono<Page<UserDTO>> findPage(@RequestParam Integer page, @RequestParam(defaultValue = "20") Integer size) {
+        PageRequest request = PageRequest.of(Math.max(page, 0), UserQueries.limit(size));
+        return service.findAll(request.getPageNumber(), request.getPageSize()).map(x -> mapper.toDTO(x)).collectList()
+                .zipWith(service.count(), (content, total) -> new PageImpl<>(content, request, total));
+    }
+
+    //Consulta por chave (keyset) - /user?afterId=100&limit=20
+    @GetMapping(params = {"limit", "!page"})
+    public Flux<UserDTO> findAllAfter(@RequestParam(defaultValue = "0") Integer afterId, @RequestParam Integer limit) {
+        return service.findAllAfter(afterId, limit).map(x -> mapper.toDTO(x));
+    }
+
+    //Busca por prefixo do nome - /user/search?name=Val&limit=20 (próxima página: afterName e afterId)
+    @GetMapping(value = "/search", params = {"name", "!email"})
+    public Flux<UserDTO> searchByName(@RequestParam String name, @RequestParam(required = false) String afterName,
+                                      @RequestParam(defaultValue = "0") Integer afterId,
+                                      @RequestParam(defaultValue = "20") Integer limit) {
+        return service.searchByName(name, afterName, afterId, limit).map(x -> mapper.toDTO(x));
+    }
+
+    //Busca por prefixo do e-mail - /user/search?email=val&limit=20 (próxima página: afterEmail)
+    @GetMapping(value = "/search", params = {"email", "!name"})
+    public Flux<UserDTO> searchByEmail(@RequestParam String email, @RequestParam(required = false) String afterEmail,
+                                       @RequestParam(defaultValue = "20") Integer limit) {
+        return service.searchByEmail(email, afterEmail, limit).map(x -> mapper.toDTO(x));
+    }
+
+    //Exportação em NDJSON - o WebFlux escreve um objeto por linha conforme os registros chegam
+    @GetMapping(value = "/export", produces = NDJSON)
+    public Flux<UserDTO> export() {
+        return findAll();
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<UserDTO>> create(@RequestBody UserDTO obj, ServerHttpRequest request) {
+        return service.create(obj).map(x -> ResponseEntity.created(UriComponentsBuilder.fromHttpRequest(request)
+                .path(ID).buildAndExpand(x.getId()).toUri()).<UserDTO>build());
+    }
+
+    @PostMapping(value = "/batch")
+    public Mono<List<UserBatchResultDTO>> createAll(@RequestBody List<UserDTO> objs) {
+        return service.createAll(objs).collectList();
+    }
+
+    @PostMapping(value = "/batch/delete")
+    public Mono<UserBatchDeleteResultDTO> deleteAll(@RequestBody List<Integer> ids) {
+        return service.deleteAll(ids);
+    }
+
+    @PutMapping(value = ID)
+    public Mono<ResponseEntity<UserDTO>> update(@PathVariable Integer id,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                @RequestBody UserDTO obj) {
+        obj.setId(id);
+        return service.update(obj, ETags.version(ifMatch)).map(x -> ResponseEntity.ok().eTag(ETags.etag(x.getVersion())).body(mapper.toDTO(x)));
+    }
+
+    @PatchMapping(value = ID)
+    public Mono<ResponseEntity<UserDTO>> patch(@PathVariable Integer id,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                               @RequestBody UserDTO obj) {
+        return service.patch(id, obj, ETags.version(ifMatch))
+                .map(x -> ResponseEntity.ok().eTag(ETags.etag(x.getVersion())).body(mapper.toDTO(x)));
+    }
+
+    @DeleteMapping(value = ID)
+    public Mono<ResponseEntity<UserDTO>> delete(@PathVariable Integer id) {
+        return service.delete(id).then(Mono.just(ResponseEntity.noContent().<UserDTO>build()));
+    }
+}
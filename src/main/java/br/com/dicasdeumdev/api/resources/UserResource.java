@@ -1,54 +1,215 @@
 package br.com.dicasdeumdev.api.resources;
 
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchDeleteResultDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchResultDTO;
 import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserEventDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserImportResultDTO;
+import br.com.dicasdeumdev.api.mappers.UserMapper;
 import br.com.dicasdeumdev.api.services.UserService;
-import org.modelmapper.ModelMapper;
+import br.com.dicasdeumdev.api.services.support.IdempotencyKeys;
+import br.com.dicasdeumdev.api.services.support.UserImportReader;
+import br.com.dicasdeumdev.api.services.support.UserQueries;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping(value = "/user")
 public class UserResource {
 
     private static final String ID = "/{id}";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
 
     //Conversao para padrao DTO - Endidade para DTO
     @Autowired
-    private ModelMapper mapper;
+    private UserMapper mapper;
 
     @Autowired
     private UserService service;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotencyKeys idempotencyKeys;
+
+    //GET condicional - com If-None-Match confere só a versão e responde 304 sem carregar nem serializar o usuário
     @GetMapping(value = ID)
-    public ResponseEntity<UserDTO> findById(@PathVariable Integer id) {
-                //Conversao para padrao DTO com Map
-        return ResponseEntity.ok().body(mapper.map(service.findById(id), UserDTO.class));
+    public ResponseEntity<UserDTO> findById(@PathVariable Integer id, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null && request.checkNotModified(ETags.etag(service.findVersion(id)))) {
+            return null;
+        }
+        User user = service.findById(id);
+        //Conversao para padrao DTO com Map
+        return ResponseEntity.ok().eTag(ETags.etag(user.getVersion())).body(mapper.toDTO(user));
     }
 
+    //ETag da lista calculado por uma consulta agregada, antes de carregar a lista
     @GetMapping
-    public ResponseEntity<List<UserDTO>> findAll() {
-        return ResponseEntity.ok().body(service.findAll()
-                //Conversao para padrao DTO com Map
-                .stream().map(x -> mapper.map(x, UserDTO.class)).collect(Collectors.toList()));
+    public ResponseEntity<List<UserDTO>> findAll(WebRequest request) {
+        String etag = ETags.etag(service.findCollectionVersion());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        //O service já retorna os DTOs (projeção), sem conversão
+        return ResponseEntity.ok().eTag(etag).body(service.findAll());
+    }
+
+    //Consulta paginada - /user?page=0&size=20
+    //Página negativa vira a primeira e o tamanho fica entre 1 e MAX_PAGE_SIZE, como no limit das consultas por chave
+    //page e limit são exclusivos, senão as duas consultas casariam com a mesma requisição
+    @GetMapping(params = {"page", "!limit"})
+    public ResponseEntity<Page<UserDTO>> findPage(@RequestParam Integer page,
+                                                  @RequestParam(defaultValue = "20") Integer size) {
+        return ResponseEntity.ok().body(service.findAll(PageRequest.of(Math.max(page, 0), UserQueries.limit(size))));
+    }
+
+    //Consulta por chave (keyset) - /user?afterId=100&limit=20
+    @GetMapping(params = {"limit", "!page"})
+    public ResponseEntity<List<UserDTO>> findAllAfter(@RequestParam(defaultValue = "0") Integer afterId,
+                                                      @RequestParam Integer limit) {
+        return ResponseEntity.ok().body(service.findAllAfter(afterId, limit));
+    }
+
+    //Busca por prefixo do nome - /user/search?name=Val&limit=20
+    //Próxima página: afterName e afterId com o nome e o ID do último usuário recebido
+    @GetMapping(value = "/search", params = {"name", "!email"})
+    public ResponseEntity<List<UserDTO>> searchByName(@RequestParam String name,
+                                                      @RequestParam(required = false) String afterName,
+                                                      @RequestParam(defaultValue = "0") Integer afterId,
+                                                      @RequestParam(defaultValue = "20") Integer limit) {
+        return ResponseEntity.ok().body(service.searchByName(name, afterName, afterId, limit));
+    }
+
+    //Busca por prefixo do e-mail - /user/search?email=val&limit=20
+    //Próxima página: afterEmail com o e-mail do último usuário recebido
+    @GetMapping(value = "/search", params = {"email", "!name"})
+    public ResponseEntity<List<UserDTO>> searchByEmail(@RequestParam String email,
+                                                       @RequestParam(required = false) String afterEmail,
+                                                       @RequestParam(defaultValue = "20") Integer limit) {
+        return ResponseEntity.ok().body(service.searchByEmail(email, afterEmail, limit));
+    }
+
+    //Exportação de todos os usuários em JSON delimitado por linha (NDJSON), escrito direto no response
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> export() {
+        ObjectWriter writer = objectMapper.writerFor(UserDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    //Cada registro em uma linha - o separador padrão entre valores raiz é um espaço
+                    .setRootValueSeparator(null)) {
+                service.export(x -> {
+                    try {
+                        writer.writeValue(generator, x);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
+    //Eventos de alteração após o offset (ID do último evento recebido) - /user/events?after=0&limit=100&timeout=30000
+    //Long-poll: sem eventos novos a resposta aguarda o próximo commit, ou o timeout (ms) com lista vazia
+    @GetMapping(value = "/events")
+    public CompletableFuture<List<UserEventDTO>> findEventsAfter(@RequestParam(defaultValue = "0") Long after,
+                                                                 @RequestParam(defaultValue = "100") Integer limit,
+                                                                 @RequestParam(defaultValue = "30000") Long timeout) {
+        return service.findEventsAfter(after, limit, timeout);
+    }
+
+    //Com Idempotency-Key a criação é executada uma única vez por chave - repetições (e requisições simultâneas
+    //com a mesma chave) recebem o mesmo 201/Location sem chamar o service, marcadas com Idempotent-Replayed
+    //A chave reutilizada com outro corpo é rejeitada (422) - não devolve o usuário de outra requisição
+    //Falhas (ex.: e-mail já cadastrado) não são guardadas - a repetição executa a criação novamente
     @PostMapping
-    public ResponseEntity<UserDTO> create(@RequestBody UserDTO obj) {
-        URI uri = ServletUriComponentsBuilder
-                .fromCurrentRequest().path(ID).buildAndExpand(service.create(obj).getId()).toUri();
-        return ResponseEntity.created(uri).build();
+    public ResponseEntity<UserDTO> create(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                          @RequestBody UserDTO obj) {
+        if (idempotencyKey == null) {
+            return ResponseEntity.created(location(service.create(obj).getId())).build();
+        }
+        IdempotencyKeys.Result result = idempotencyKeys.execute(idempotencyKey,
+                idempotencyKeys.fingerprint(obj.getName(), obj.getEmail(), obj.getPassword()),
+                () -> service.create(obj).getId());
+        return ResponseEntity.created(location(result.id()))
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(result.replayed())).build();
+    }
+
+    //Criação em lote - retorna o resultado de cada item (criado ou rejeitado)
+    @PostMapping(value = "/batch")
+    public ResponseEntity<List<UserBatchResultDTO>> createAll(@RequestBody List<UserDTO> objs) {
+        return ResponseEntity.ok().body(service.createAll(objs));
+    }
+
+    //Importação de arquivo CSV (cabeçalho name,email,password) ou NDJSON - o corpo é lido em streaming,
+    //inserido em blocos com commit a cada bloco, e a resposta traz os totais e os erros por linha
+    @PostMapping(value = "/import", consumes = CSV)
+    public ResponseEntity<UserImportResultDTO> importCsv(InputStream body) {
+        return ResponseEntity.ok().body(service.importAll(new UserImportReader(body, UserImportReader.Format.CSV, objectMapper)));
+    }
+
+    @PostMapping(value = "/import", consumes = NDJSON)
+    public ResponseEntity<UserImportResultDTO> importNdjson(InputStream body) {
+        return ResponseEntity.ok().body(service.importAll(new UserImportReader(body, UserImportReader.Format.NDJSON, objectMapper)));
+    }
+
+    //Exclusão em lote - recebe a lista de IDs e retorna a quantidade excluída e os IDs inexistentes
+    @PostMapping(value = "/batch/delete")
+    public ResponseEntity<UserBatchDeleteResultDTO> deleteAll(@RequestBody List<Integer> ids) {
+        return ResponseEntity.ok().body(service.deleteAll(ids));
     }
 
+    //PUT condicional - com If-Match a alteração só é aplicada na versão informada, senão 412
     @PutMapping(value = ID)
-    public ResponseEntity<UserDTO> update(@PathVariable Integer id, @RequestBody UserDTO obj) {
+    public ResponseEntity<UserDTO> update(@PathVariable Integer id,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                          @RequestBody UserDTO obj) {
         obj.setId(id);
-        return ResponseEntity.ok().body(mapper.map(service.update(obj), UserDTO.class));
+        Long version = ETags.version(ifMatch);
+        User user = version == null ? service.update(obj) : service.update(obj, version);
+        //Write-behind - aceito e ainda não gravado, sem versão para o ETag
+        if (user.getVersion() == null) {
+            return ResponseEntity.accepted().body(mapper.toDTO(user));
+        }
+        return ResponseEntity.ok().eTag(ETags.etag(user.getVersion())).body(mapper.toDTO(user));
+    }
+
+    //Atualização parcial - apenas os campos informados no corpo (JSON ou merge-patch+json), com If-Match opcional
+    @PatchMapping(value = ID)
+    public ResponseEntity<UserDTO> patch(@PathVariable Integer id,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                         @RequestBody UserDTO obj) {
+        User user = service.patch(id, obj, ETags.version(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.etag(user.getVersion())).body(mapper.toDTO(user));
     }
 
     @DeleteMapping(value = ID)
@@ -56,4 +217,8 @@ public class UserResource {
         service.delete(id);
         return ResponseEntity.noContent().build();
     }
+
+    private static URI location(Integer id) {
+        return ServletUriComponentsBuilder.fromCurrentRequest().path(ID).buildAndExpand(id).toUri();
+    }
 }
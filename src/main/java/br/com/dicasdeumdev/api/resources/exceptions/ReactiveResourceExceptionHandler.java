@@ -0,0 +1,53 @@
+package br.com.dicasdeumdev.api.resources.exceptions;
+
+import br.com.dicasdeumdev.api.services.exceptions.DataIntegratyViolationException;
+import br.com.dicasdeumdev.api.services.exceptions.ObjectNotFoundException;
+import br.com.dicasdeumdev.api.services.exceptions.PreconditionFailedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@ControllerAdvice
+//Manipulador de exceptions do ReactiveUserResource - mesmas respostas do ResourceExceptionHandler
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveResourceExceptionHandler {
+
+    private static final String ERRORS = "api.errors";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private final Map<Class<?>, Counter> counters = new ConcurrentHashMap<>();
+
+    @ExceptionHandler(ObjectNotFoundException.class)
+    public ResponseEntity<StandardError> objectNotFound(ObjectNotFoundException ex, ServerHttpRequest request) {
+        return error(ex, HttpStatus.NOT_FOUND, request);
+    }
+
+    @ExceptionHandler(DataIntegratyViolationException.class)
+    public ResponseEntity<StandardError> dataIntegrityViolationException(DataIntegratyViolationException ex, ServerHttpRequest request) {
+        return error(ex, HttpStatus.BAD_REQUEST, request);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<StandardError> preconditionFailed(PreconditionFailedException ex, ServerHttpRequest request) {
+        return error(ex, HttpStatus.PRECONDITION_FAILED, request);
+    }
+
+    private ResponseEntity<StandardError> error(RuntimeException ex, HttpStatus status, ServerHttpRequest request) {
+        counters.computeIfAbsent(ex.getClass(), type -> registry.counter(ERRORS,
+                        "exception", type.getSimpleName(), "status", String.valueOf(status.value())))
+                .increment();
+        StandardError error = StandardError.of(status.value(), ex.getMessage(), request.getPath().value());
+        return ResponseEntity.status(status).body(error);
+    }
+}
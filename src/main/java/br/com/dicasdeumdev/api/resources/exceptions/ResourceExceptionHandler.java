@@ -1,30 +1,71 @@
 package br.com.dicasdeumdev.api.resources.exceptions;
 
 import br.com.dicasdeumdev.api.services.exceptions.DataIntegratyViolationException;
+import br.com.dicasdeumdev.api.services.exceptions.IdempotencyKeyMismatchException;
 import br.com.dicasdeumdev.api.services.exceptions.ObjectNotFoundException;
+import br.com.dicasdeumdev.api.services.exceptions.PreconditionFailedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import javax.servlet.http.HttpServletRequest;
-import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 //Manipulador de exceptions do Controller
 public class ResourceExceptionHandler {
 
+    //Contador de erros por tipo de exceção e status
+    private static final String ERRORS = "api.errors";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    //Contadores resolvidos uma vez por tipo de exceção - evita montar as tags a cada erro
+    private final Map<Class<?>, Counter> counters = new ConcurrentHashMap<>();
+
     @ExceptionHandler(ObjectNotFoundException.class)
     public ResponseEntity<StandardError>objectNotFound(ObjectNotFoundException ex, HttpServletRequest request) {
+        count(ex, HttpStatus.NOT_FOUND);
         StandardError error =
-                new StandardError(LocalDateTime.now(), HttpStatus.NOT_FOUND.value(), ex.getMessage(), request.getRequestURI());
+                StandardError.of(HttpStatus.NOT_FOUND.value(), ex.getMessage(), request.getRequestURI());
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
     @ExceptionHandler(DataIntegratyViolationException.class)
     public ResponseEntity<StandardError>dataIntegrityViolationException(DataIntegratyViolationException ex, HttpServletRequest request) {
+        count(ex, HttpStatus.BAD_REQUEST);
         StandardError error =
-                new StandardError(LocalDateTime.now(), HttpStatus.BAD_REQUEST.value(), ex.getMessage(), request.getRequestURI());
+                StandardError.of(HttpStatus.BAD_REQUEST.value(), ex.getMessage(), request.getRequestURI());
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<StandardError>preconditionFailed(PreconditionFailedException ex, HttpServletRequest request) {
+        count(ex, HttpStatus.PRECONDITION_FAILED);
+        StandardError error =
+                StandardError.of(HttpStatus.PRECONDITION_FAILED.value(), ex.getMessage(), request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(error);
+    }
+
+    @ExceptionHandler(IdempotencyKeyMismatchException.class)
+    public ResponseEntity<StandardError>idempotencyKeyMismatch(IdempotencyKeyMismatchException ex, HttpServletRequest request) {
+        count(ex, HttpStatus.UNPROCESSABLE_ENTITY);
+        StandardError error =
+                StandardError.of(HttpStatus.UNPROCESSABLE_ENTITY.value(), ex.getMessage(), request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+    }
+
+    private void count(Exception ex, HttpStatus status) {
+        counters.computeIfAbsent(ex.getClass(), type -> registry.counter(ERRORS,
+                        "exception", type.getSimpleName(), "status", String.valueOf(status.value())))
+                .increment();
+    }
 }
@@ -3,12 +3,17 @@ package br.com.dicasdeumdev.api.resources.exceptions;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
 
 @Getter
 @AllArgsConstructor
 //Classe será utilizada pela classe que irá manipular as exceções.
 public class StandardError {
+
+    //Relógio com o fuso resolvido uma única vez - LocalDateTime.now() consulta o TimeZone padrão a cada chamada
+    private static final Clock CLOCK = Clock.systemDefaultZone();
+
     //Momento que ocorreu o erro
     private LocalDateTime timestamp;
     //Status Http
@@ -16,4 +21,8 @@ public class StandardError {
     //mensagem do erro
     private String error;
     private String path;
+
+    public static StandardError of(Integer status, String error, String path) {
+        return new StandardError(LocalDateTime.now(CLOCK), status, error, path);
+    }
 }
@@ -0,0 +1,29 @@
+package br.com.dicasdeumdev.api.services;
+
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchDeleteResultDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchResultDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+//Mesmas operações do UserService, sem bloquear a thread (R2DBC)
+public interface ReactiveUserService {
+
+    Mono<User> findById(Integer id);
+    Flux<User> findAll();
+    Flux<User> findAll(int page, int size);
+    Mono<Long> count();
+    Flux<User> findAllAfter(Integer afterId, int limit);
+    Flux<User> searchByName(String prefix, String afterName, Integer afterId, int limit);
+    Flux<User> searchByEmail(String prefix, String afterEmail, int limit);
+    Mono<User> create(UserDTO obj);
+    Flux<UserBatchResultDTO> createAll(List<UserDTO> objs);
+    Mono<User> update(UserDTO obj);
+    Mono<User> update(UserDTO obj, Long version);
+    Mono<User> patch(Integer id, UserDTO obj, Long version);
+    Mono<Void> delete(Integer id);
+    Mono<UserBatchDeleteResultDTO> deleteAll(List<Integer> ids);
+}
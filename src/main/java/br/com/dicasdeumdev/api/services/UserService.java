@@ -1,15 +1,39 @@
 package br.com.dicasdeumdev.api.services;
 
 import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchDeleteResultDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchResultDTO;
 import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserEventDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserImportResultDTO;
+import br.com.dicasdeumdev.api.services.support.UserImportReader;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface UserService {
 
     User findById(Integer id);
-    List<User> findAll();
+    Long findVersion(Integer id);
+    String findCollectionVersion();
+    List<UserDTO> findAll();
+    Page<UserDTO> findAll(Pageable pageable);
+    List<UserDTO> findAllAfter(Integer afterId, int limit);
+    List<UserDTO> searchByName(String prefix, String afterName, Integer afterId, int limit);
+    List<UserDTO> searchByEmail(String prefix, String afterEmail, int limit);
+    void export(Consumer<UserDTO> consumer);
     User create(UserDTO obj);
+    List<UserBatchResultDTO> createAll(List<UserDTO> objs);
+    UserImportResultDTO importAll(Iterator<UserImportReader.Row> rows);
     User update(UserDTO obj);
+    User update(UserDTO obj, Long version);
+    User patch(Integer id, UserDTO obj, Long version);
     void delete(Integer id);
+    UserBatchDeleteResultDTO deleteAll(List<Integer> ids);
+    CompletableFuture<List<UserEventDTO>> findEventsAfter(Long after, int limit, long timeout);
 }
@@ -1,8 +1,9 @@
 package br.com.dicasdeumdev.api.services.exceptions;
 
+//Erro de negócio esperado (400) - sem stack trace e sem suppressed, o custo fica só na alocação do objeto
 public class DataIntegratyViolationException extends RuntimeException{
 
     public DataIntegratyViolationException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
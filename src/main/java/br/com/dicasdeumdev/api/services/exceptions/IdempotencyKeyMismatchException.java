@@ -0,0 +1,9 @@
+package br.com.dicasdeumdev.api.services.exceptions;
+
+//Idempotency-Key reutilizada com outro corpo de requisição (422) - erro esperado, sem stack trace
+public class IdempotencyKeyMismatchException extends RuntimeException{
+
+    public IdempotencyKeyMismatchException(String message) {
+        super(message, null, false, false);
+    }
+}
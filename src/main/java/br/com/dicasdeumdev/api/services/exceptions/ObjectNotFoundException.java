@@ -1,8 +1,9 @@
 package br.com.dicasdeumdev.api.services.exceptions;
 
+//Erro de negócio esperado (404) - sem stack trace e sem suppressed, o custo fica só na alocação do objeto
 public class ObjectNotFoundException extends RuntimeException{
 
     public ObjectNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
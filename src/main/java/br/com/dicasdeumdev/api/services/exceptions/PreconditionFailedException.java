@@ -0,0 +1,9 @@
+package br.com.dicasdeumdev.api.services.exceptions;
+
+//Versão informada no If-Match diverge da versão atual (412) - erro esperado, sem stack trace
+public class PreconditionFailedException extends RuntimeException{
+
+    public PreconditionFailedException(String message) {
+        super(message, null, false, false);
+    }
+}
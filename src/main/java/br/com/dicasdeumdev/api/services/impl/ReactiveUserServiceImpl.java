@@ -0,0 +1,301 @@
+package br.com.dicasdeumdev.api.services.impl;
+
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchDeleteResultDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchResultDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.services.ReactiveUserService;
+import br.com.dicasdeumdev.api.services.exceptions.DataIntegratyViolationException;
+import br.com.dicasdeumdev.api.services.exceptions.ObjectNotFoundException;
+import br.com.dicasdeumdev.api.services.exceptions.PreconditionFailedException;
+import br.com.dicasdeumdev.api.services.support.EmailIndex;
+import br.com.dicasdeumdev.api.services.support.PasswordHasher;
+import br.com.dicasdeumdev.api.services.support.PooledIds;
+import br.com.dicasdeumdev.api.services.support.UserQueries;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+//Ativo apenas com spring.main.web-application-type=reactive (profile reactive)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+
+    //Sem a senha - nenhuma leitura devolve o hash, como nas projeções do UserRepository
+    private static final String COLUMNS = "select id, name, email, version from user ";
+    private static final int DELETE_BATCH = 1000;
+    //allocationSize do user_seq (User) - o incremento da sequence
+    private static final int USER_SEQ_BLOCK = 50;
+    private static final String UPDATE = "update user set name = :name, email = :email, password = :password, version = version + 1 ";
+    private static final String USUARIO_NULO = "Usuário não informado";
+    //Exceções pré-alocadas e sem stack trace - mesmas do UserServiceImpl
+    private static final ObjectNotFoundException OBJETO_NAO_ENCONTRADO = new ObjectNotFoundException("Objeto não encontrado");
+    private static final DataIntegratyViolationException E_MAIL_DUPLICADO = new DataIntegratyViolationException("E-mail já cadastrado no sistema");
+    private static final PreconditionFailedException VERSAO_DIVERGENTE = new PreconditionFailedException("Registro alterado por outra requisição");
+
+    private final DatabaseClient client;
+
+    //Transações R2DBC locais ao service - o transaction manager do JPA continua sendo o padrão da aplicação
+    private final TransactionalOperator transactional;
+
+    //Mantém o índice de e-mails do UserServiceImpl atualizado com as gravações reativas
+    private final EmailIndex emailIndex;
+
+    private final PasswordHasher passwordHasher;
+
+    //IDs do bloco lido do user_seq - um valor da sequence a cada USER_SEQ_BLOCK inserts, como o Hibernate
+    private final PooledIds ids = new PooledIds(USER_SEQ_BLOCK);
+
+    public ReactiveUserServiceImpl(DatabaseClient client, ConnectionFactory connectionFactory, EmailIndex emailIndex,
+                                   PasswordHasher passwordHasher) {
+        this.client = client;
+        this.emailIndex = emailIndex;
+        this.passwordHasher = passwordHasher;
+        this.transactional = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    @Override
+    public Mono<User> findById(Integer id) {
+        return client.sql(COLUMNS + "where id = :id")
+                .bind("id", id)
+                .map(ReactiveUserServiceImpl::toUser)
+                .one()
+                //retorna o Usuario encontrado, caso contrario retorna uma Exception
+                .switchIfEmpty(Mono.error(OBJETO_NAO_ENCONTRADO));
+    }
+
+    @Override
+    public Flux<User> findAll() {
+        return client.sql(COLUMNS + "order by id")
+                .map(ReactiveUserServiceImpl::toUser)
+                .all();
+    }
+
+    @Override
+    public Flux<User> findAll(int page, int size) {
+        int limit = UserQueries.limit(size);
+        return client.sql(COLUMNS + "order by id limit :limit offset :offset")
+                .bind("limit", limit)
+                .bind("offset", (long) page * limit)
+                .map(ReactiveUserServiceImpl::toUser)
+                .all();
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return client.sql("select count(*) from user")
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    @Override
+    public Flux<User> findAllAfter(Integer afterId, int limit) {
+        return client.sql(COLUMNS + "where id > :afterId order by id limit :limit")
+                .bind("afterId", afterId == null ? 0 : afterId)
+                .bind("limit", UserQueries.limit(limit))
+                .map(ReactiveUserServiceImpl::toUser)
+                .all();
+    }
+
+    //Busca por prefixo com continuação por chave - mesmas consultas indexadas do UserRepository
+    @Override
+    public Flux<User> searchByName(String prefix, String afterName, Integer afterId, int limit) {
+        return client.sql(COLUMNS + "where name like :prefix escape '\\' and name >= :afterName " +
+                        "and (name > :afterName or (name = :afterName and id > :afterId)) order by name, id limit :limit")
+                .bind("prefix", UserQueries.likePrefix(prefix))
+                .bind("afterName", afterName == null ? "" : afterName)
+                .bind("afterId", afterId == null ? 0 : afterId)
+                .bind("limit", UserQueries.limit(limit))
+                .map(ReactiveUserServiceImpl::toUser)
+                .all();
+    }
+
+    @Override
+    public Flux<User> searchByEmail(String prefix, String afterEmail, int limit) {
+        return client.sql(COLUMNS + "where email like :prefix escape '\\' and email > :afterEmail order by email limit :limit")
+                .bind("prefix", UserQueries.likePrefix(prefix))
+                .bind("afterEmail", afterEmail == null ? "" : afterEmail)
+                .bind("limit", UserQueries.limit(limit))
+                .map(ReactiveUserServiceImpl::toUser)
+                .all();
+    }
+
+    //Mesma regra do UserServiceImpl - a constraint unique do e-mail gera DataIntegratyViolationException
+    @Override
+    public Mono<User> create(UserDTO obj) {
+        return withHashedPassword(obj).flatMap(this::insert);
+    }
+
+    private Mono<User> insert(UserDTO obj) {
+        return nextId()
+                .flatMap(id -> bind(client.sql("insert into user (id, name, email, password, version) values (:id, :name, :email, :password, 0)")
+                        .bind("id", id), obj)
+                        .fetch().rowsUpdated()
+                        .thenReturn(new User(id, obj.getName(), obj.getEmail(), obj.getPassword(), 0L)))
+                .onErrorMap(DataIntegrityViolationException.class, ex -> E_MAIL_DUPLICADO)
+                .as(transactional::transactional)
+                .doOnNext(user -> emailIndex.add(user.getEmail()));
+    }
+
+    //Próximo ID do bloco em memória - a sequence só é lida quando o bloco se esgota
+    private Mono<Integer> nextId() {
+        return Mono.defer(() -> {
+            Integer id = ids.next();
+            return id != null ? Mono.just(id)
+                    : client.sql("select next value for user_seq").map(row -> row.get(0, Long.class)).one().map(ids::allocate);
+        });
+    }
+
+    //Criação em lote - cada item em sequência, com o resultado (criado ou rejeitado) por item
+    @Override
+    public Flux<UserBatchResultDTO> createAll(List<UserDTO> objs) {
+        //Item null no JSON ([null]) é rejeitado no próprio índice, como no UserServiceImpl
+        return Flux.range(0, objs.size())
+                .concatMap(i -> objs.get(i) == null
+                        ? Mono.just(new UserBatchResultDTO(i, null, null, HttpStatus.BAD_REQUEST.value(), USUARIO_NULO))
+                        : create(objs.get(i))
+                        .map(user -> new UserBatchResultDTO(i, user.getId(), user.getEmail(), HttpStatus.CREATED.value(), null))
+                        .onErrorResume(DataIntegratyViolationException.class, ex -> Mono.just(new UserBatchResultDTO(
+                                i, null, objs.get(i).getEmail(), HttpStatus.BAD_REQUEST.value(), ex.getMessage()))));
+    }
+
+    @Override
+    public Mono<User> update(UserDTO obj) {
+        return update(obj, null);
+    }
+
+    //Com a versão informada (If-Match) o UPDATE só altera o registro nessa versão - mesma regra do UserServiceImpl
+    @Override
+    public Mono<User> update(UserDTO obj, Long version) {
+        return withHashedPassword(obj).flatMap(dto -> execute(dto, version));
+    }
+
+    private Mono<User> execute(UserDTO obj, Long version) {
+        DatabaseClient.GenericExecuteSpec spec = version == null
+                ? client.sql(UPDATE + "where id = :id")
+                : client.sql(UPDATE + "where id = :id and version = :version").bind("version", version);
+        return bind(spec.bind("id", obj.getId()), obj)
+                .fetch().rowsUpdated()
+                .onErrorMap(DataIntegrityViolationException.class, ex -> E_MAIL_DUPLICADO)
+                .flatMap(rows -> rows == 0
+                        //Nenhuma linha alterada - ID inexistente (404) ou versão divergente (412)
+                        ? findById(obj.getId()).then(Mono.<User>error(VERSAO_DIVERGENTE))
+                        //Relê o registro para devolver a versão gerada pelo UPDATE
+                        : findById(obj.getId()))
+                .as(transactional::transactional)
+                //Sem o e-mail anterior - o índice só conta como alterado um e-mail que ainda não está nele
+                .doOnNext(user -> emailIndex.replace(null, user.getEmail()));
+    }
+
+    //Atualização parcial - o UPDATE é montado apenas com as colunas informadas (não nulas)
+    @Override
+    public Mono<User> patch(Integer id, UserDTO obj, Long version) {
+        return withHashedPassword(obj).flatMap(dto -> execute(id, dto, version));
+    }
+
+    private Mono<User> execute(Integer id, UserDTO obj, Long version) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        if (obj.getName() != null) {
+            columns.put("name", obj.getName());
+        }
+        if (obj.getEmail() != null) {
+            columns.put("email", obj.getEmail());
+        }
+        if (obj.getPassword() != null) {
+            columns.put("password", obj.getPassword());
+        }
+        if (columns.isEmpty()) {
+            return findById(id).flatMap(user -> version == null || version.equals(user.getVersion())
+                    ? Mono.just(user) : Mono.<User>error(VERSAO_DIVERGENTE));
+        }
+        String set = columns.keySet().stream().map(column -> column + " = :" + column).collect(Collectors.joining(", "));
+        DatabaseClient.GenericExecuteSpec spec = client.sql("update user set " + set + ", version = version + 1 where id = :id"
+                + (version == null ? "" : " and version = :version")).bind("id", id);
+        for (Map.Entry<String, String> column : columns.entrySet()) {
+            spec = spec.bind(column.getKey(), column.getValue());
+        }
+        if (version != null) {
+            spec = spec.bind("version", version);
+        }
+        return spec.fetch().rowsUpdated()
+                .onErrorMap(DataIntegrityViolationException.class, ex -> E_MAIL_DUPLICADO)
+                .flatMap(rows -> rows == 0
+                        ? findById(id).then(Mono.<User>error(VERSAO_DIVERGENTE))
+                        : findById(id))
+                .as(transactional::transactional)
+                .doOnNext(user -> {
+                    if (obj.getEmail() != null) {
+                        emailIndex.replace(null, user.getEmail());
+                    }
+                });
+    }
+
+    @Override
+    public Mono<Void> delete(Integer id) {
+        return client.sql("delete from user where id = :id")
+                .bind("id", id)
+                .fetch().rowsUpdated()
+                .flatMap(rows -> rows == 0
+                        ? Mono.<Void>error(OBJETO_NAO_ENCONTRADO)
+                        : Mono.<Void>empty().doOnSuccess(x -> emailIndex.markStale()));
+    }
+
+    //Exclusão em lote - por bloco: consulta dos IDs existentes e um único DELETE, na mesma transação
+    @Override
+    public Mono<UserBatchDeleteResultDTO> deleteAll(List<Integer> ids) {
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        return Flux.range(0, (distinct.size() + DELETE_BATCH - 1) / DELETE_BATCH)
+                .map(i -> distinct.subList(i * DELETE_BATCH, Math.min((i + 1) * DELETE_BATCH, distinct.size())))
+                .concatMap(chunk -> client.sql("select id from user where id in (:ids)").bind("ids", chunk)
+                        .map(row -> row.get("id", Integer.class)).all().collect(Collectors.toSet())
+                        .flatMap(existing -> (existing.isEmpty() ? Mono.just(0)
+                                : client.sql("delete from user where id in (:ids)").bind("ids", existing).fetch().rowsUpdated())
+                                .map(deleted -> new UserBatchDeleteResultDTO(deleted, chunk.stream()
+                                        .filter(id -> !existing.contains(id)).collect(Collectors.toList())))))
+                .reduce(new UserBatchDeleteResultDTO(0, new ArrayList<>()), (total, chunk) -> {
+                    total.setDeleted(total.getDeleted() + chunk.getDeleted());
+                    total.getNotFound().addAll(chunk.getNotFound());
+                    return total;
+                })
+                .as(transactional::transactional)
+                .doOnNext(result -> emailIndex.markStale(result.getDeleted()));
+    }
+
+    //Hash da senha no pool do PasswordHasher - o bcrypt não é executado no event loop
+    private Mono<UserDTO> withHashedPassword(UserDTO obj) {
+        if (obj.getPassword() == null) {
+            return Mono.just(obj);
+        }
+        return Mono.fromFuture(() -> passwordHasher.hash(obj.getPassword()))
+                .map(password -> new UserDTO(obj.getId(), obj.getName(), obj.getEmail(), password));
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, UserDTO obj) {
+        return bind(bind(bind(spec, "name", obj.getName()), "email", obj.getEmail()), "password", obj.getPassword());
+    }
+
+    //O R2DBC não aceita bind de valor nulo - utiliza bindNull com o tipo da coluna
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private static User toUser(Row row) {
+        return new User(row.get("id", Integer.class), row.get("name", String.class),
+                row.get("email", String.class), null, row.get("version", Long.class));
+    }
+}
@@ -1,60 +1,684 @@
 package br.com.dicasdeumdev.api.services.impl;
 
+import br.com.dicasdeumdev.api.config.CacheConfig;
 import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchDeleteResultDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchResultDTO;
 import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserEventDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserImportResultDTO;
+import br.com.dicasdeumdev.api.mappers.UserMapper;
 import br.com.dicasdeumdev.api.repositories.UserRepository;
 import br.com.dicasdeumdev.api.services.UserService;
 import br.com.dicasdeumdev.api.services.exceptions.DataIntegratyViolationException;
 import br.com.dicasdeumdev.api.services.exceptions.ObjectNotFoundException;
-import org.modelmapper.ModelMapper;
+import br.com.dicasdeumdev.api.services.exceptions.PreconditionFailedException;
+import br.com.dicasdeumdev.api.services.support.EmailIndex;
+import br.com.dicasdeumdev.api.services.support.PasswordHasher;
+import br.com.dicasdeumdev.api.services.support.SingleFlight;
+import br.com.dicasdeumdev.api.services.support.UserEventLog;
+import br.com.dicasdeumdev.api.services.support.UserImportReader;
+import br.com.dicasdeumdev.api.services.support.UserQueries;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class UserServiceImpl implements UserService {
 
+    //IDs por comando na exclusão em lote - mantém a lista do IN dentro dos limites do banco
+    private static final int DELETE_BATCH = 1000;
+
+    //Linhas por transação na importação - cada bloco é validado em uma consulta, inserido em batch e confirmado
+    private static final int IMPORT_BATCH = 1000;
+
+    //Erros por linha devolvidos na importação - os demais são apenas contados
+    private static final int MAX_IMPORT_ERRORS = 1000;
+
+    //Linhas importadas por resultado (created/rejected) - acompanha o progresso de importações longas
+    private static final String IMPORT_ROWS = "api.user.import.rows";
+
+    //PUTs em write-behind por resultado (buffered/written/failed) - o gauge .pending mostra os IDs aguardando o flush
+    private static final String WRITE_BEHIND = "api.user.write_behind";
+
+    //Espera máxima do long-poll de eventos
+    private static final long MAX_EVENTS_TIMEOUT = 60000;
+
+    //Timer por operação (tags class/method/exception) - latência, throughput e erros
+    private static final String TIMER = "api.user.service";
+
+    private static final String E_MAIL_JA_CADASTRADO = "E-mail já cadastrado no sistema";
+    private static final String USUARIO_NULO = "Usuário não informado";
+
+    //Exceções pré-alocadas - são imutáveis e sem stack trace, podem ser lançadas por todas as requisições
+    private static final ObjectNotFoundException OBJETO_NAO_ENCONTRADO = new ObjectNotFoundException("Objeto não encontrado");
+    private static final DataIntegratyViolationException E_MAIL_DUPLICADO = new DataIntegratyViolationException(E_MAIL_JA_CADASTRADO);
+    private static final PreconditionFailedException VERSAO_DIVERGENTE = new PreconditionFailedException("Registro alterado por outra requisição");
+
     @Autowired
     private UserRepository repository;
 
     @Autowired
-    private ModelMapper mapper;
+    private UserMapper mapper;
+
+    @Autowired
+    private EmailIndex emailIndex;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    //Eventos de alteração (outbox) - gravados na mesma transação de cada alteração
+    @Autowired
+    private UserEventLog eventLog;
+
+    //Write-behind do PUT (api.write-behind.enabled=true) - PUTs sem If-Match ficam em memória, um por ID (o PUT
+    //substitui o registro inteiro, o último prevalece), e são gravados em uma transação por lote a cada
+    //api.write-behind.interval ms, ao atingir api.write-behind.max-pending IDs e no encerramento da aplicação
+    //Durabilidade: o PUT é respondido com 202 antes da gravação - uma queda do processo (kill -9, falta de energia)
+    //perde as alterações pendentes; até o flush as leituras retornam o valor anterior; uma alteração rejeitada
+    //no flush (e-mail duplicado) é descartada e contada em api.user.write_behind{result=failed}
+    @Value("${api.write-behind.enabled:false}")
+    private boolean writeBehind;
+
+    @Value("${api.write-behind.max-pending:1000}")
+    private int maxPendingUpdates;
+
+    private final Map<Integer, User> pendingUpdates = new ConcurrentHashMap<>();
+
+    //IDs retirados do buffer pelo flush e ainda não confirmados - um ID está sempre no buffer, aqui ou já gravado
+    private final Set<Integer> writingUpdates = ConcurrentHashMap.newKeySet();
+
+    //Serializa os flushes do buffer - não é o monitor do service, que não bloqueia as demais operações
+    private final Object flushLock = new Object();
+
+    @PostConstruct
+    public void registerMetrics() {
+        registry.gaugeMapSize(WRITE_BEHIND + ".pending", Tags.empty(), pendingUpdates);
+    }
 
+    //Leitura via cache - o banco só é consultado em caso de miss
+    //IDs inexistentes ficam no cache negativo e os próximos 404 não consultam o banco
+    //Misses concorrentes do mesmo ID (ex.: expiração de um usuário muito acessado) compartilham uma única carga
     @Override
+    @Cacheable(value = CacheConfig.USERS, key = "#id")
+    @Timed(TIMER)
     public User findById(Integer id) {
+        return singleFlight.execute("findById", id, () -> load(id));
+    }
+
+    private User load(Integer id) {
+        Cache missing = cacheManager.getCache(CacheConfig.MISSING_USERS);
+        if (missing.get(id) != null) {
+            throw OBJETO_NAO_ENCONTRADO;
+        }
         Optional<User> obj = repository.findById(id);
+        if (obj.isEmpty()) {
+            missing.put(id, Boolean.TRUE);
+        }
         //retorna o Usuario encontrado, caso contrario retorna uma Exception
-        return obj.orElseThrow(() -> new ObjectNotFoundException("Objeto não encontrado"));
+        return obj.orElseThrow(() -> OBJETO_NAO_ENCONTRADO);
+    }
+
+    //Versão atual do usuário (ETag) - vem do cache quando o usuário está em cache, senão de uma consulta só da coluna version
+    @Override
+    @Timed(TIMER)
+    public Long findVersion(Integer id) {
+        User cached = cacheManager.getCache(CacheConfig.USERS).get(id, User.class);
+        if (cached != null) {
+            return cached.getVersion();
+        }
+        return repository.findVersionById(id).orElseThrow(() -> OBJETO_NAO_ENCONTRADO);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(TIMER)
+    public String findCollectionVersion() {
+        return repository.findCollectionVersion();
+    }
+
+    //Leituras de lista via projeção (id, nome e e-mail) em transação somente leitura
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(TIMER)
+    public List<UserDTO> findAll() {
+        return repository.findAllProjected();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(TIMER)
+    public Page<UserDTO> findAll(Pageable pageable) {
+        //Limita o tamanho da página e garante uma ordenação estável quando não informada
+        Pageable page = PageRequest.of(pageable.getPageNumber(), Math.min(pageable.getPageSize(), UserQueries.MAX_PAGE_SIZE),
+                pageable.getSortOr(Sort.by("id")));
+        return repository.findAllProjected(page);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(TIMER)
+    public List<UserDTO> findAllAfter(Integer afterId, int limit) {
+        //Busca os próximos registros após o último ID recebido pelo cliente
+        return repository.findProjectedByIdGreaterThan(afterId == null ? 0 : afterId, limit(limit));
     }
 
-    public List<User> findAll() {
-        return repository.findAll();
+    //Busca por prefixo (sensível a maiúsculas/minúsculas, como o índice) - a próxima página continua
+    //após o último nome/ID ou e-mail recebido, com custo constante independente da profundidade
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(TIMER)
+    public List<UserDTO> searchByName(String prefix, String afterName, Integer afterId, int limit) {
+        return repository.searchByName(UserQueries.likePrefix(prefix), afterName == null ? "" : afterName,
+                afterId == null ? 0 : afterId, limit(limit));
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @Timed(TIMER)
+    public List<UserDTO> searchByEmail(String prefix, String afterEmail, int limit) {
+        return repository.searchByEmail(UserQueries.likePrefix(prefix), afterEmail == null ? "" : afterEmail, limit(limit));
+    }
+
+    //Percorre todos os usuários com um cursor, sem carregar a tabela inteira em memória
+    //Os DTOs da projeção não ficam no contexto de persistência - a memória se mantém constante
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(TIMER)
+    public void export(Consumer<UserDTO> consumer) {
+        try (Stream<UserDTO> users = repository.streamAll()) {
+            users.forEach(consumer);
+        }
+    }
+
+    @Override
+    @Caching(put = @CachePut(value = CacheConfig.USERS, key = "#result.id"),
+            evict = @CacheEvict(value = CacheConfig.MISSING_USERS, key = "#result.id"))
+    @Timed(TIMER)
     public User create(UserDTO obj) {
-        findByEmail(obj);
-        return repository.save(mapper.map(obj, User.class));
+        User entity = mapper.toEntity(obj);
+        entity.setPassword(passwordHasher.encode(entity.getPassword()));
+        User user = inTransaction(() -> {
+            User saved = saveAndFlush(entity);
+            eventLog.created(saved);
+            return saved;
+        });
+        emailIndex.add(user.getEmail());
+        return user;
+    }
+
+    //Criação em lote - valida os e-mails do lote inteiro em uma consulta e insere com batch do Hibernate
+    //Os hashes das senhas são calculados em paralelo no pool, antes da transação dos INSERTs
+    @Override
+    @Timed(TIMER)
+    public List<UserBatchResultDTO> createAll(List<UserDTO> objs) {
+        Set<String> emails = objs.stream().filter(Objects::nonNull)
+                .map(UserDTO::getEmail).filter(Objects::nonNull).collect(Collectors.toSet());
+        //Só consulta no banco os e-mails que o índice não garante serem novos
+        Set<String> candidates = emails.stream().filter(emailIndex::mightExist).collect(Collectors.toSet());
+        Set<String> existing = candidates.isEmpty() ? new HashSet<>() : new HashSet<>(repository.findEmailsIn(candidates));
+        emailIndex.recordFalsePositives(candidates.size() - existing.size());
+
+        Set<String> seen = new HashSet<>();
+        List<UserBatchResultDTO> results = new ArrayList<>(objs.size());
+        List<User> users = new ArrayList<>(objs.size());
+        for (int i = 0; i < objs.size(); i++) {
+            UserDTO obj = objs.get(i);
+            //Item null no JSON ([null]) é rejeitado no próprio índice, sem derrubar o lote
+            if (obj == null) {
+                results.add(new UserBatchResultDTO(i, null, null, HttpStatus.BAD_REQUEST.value(), USUARIO_NULO));
+                continue;
+            }
+            //Rejeita e-mails já cadastrados e e-mails repetidos dentro do próprio lote
+            if (existing.contains(obj.getEmail()) || (obj.getEmail() != null && !seen.add(obj.getEmail()))) {
+                results.add(new UserBatchResultDTO(i, null, obj.getEmail(), HttpStatus.BAD_REQUEST.value(), E_MAIL_JA_CADASTRADO));
+                continue;
+            }
+            User user = mapper.toEntity(obj);
+            //O ID vem da sequence, o INSERT só é executado no flush em lotes de hibernate.jdbc.batch_size
+            user.setId(null);
+            users.add(user);
+            results.add(new UserBatchResultDTO(i, null, obj.getEmail(), HttpStatus.CREATED.value(), null));
+        }
+
+        List<CompletableFuture<String>> passwords = users.stream()
+                .map(user -> passwordHasher.hash(user.getPassword())).collect(Collectors.toList());
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setPassword(passwords.get(i).join());
+        }
+
+        inTransaction(() -> {
+            repository.saveAll(users);
+            try {
+                repository.flush();
+            } catch (DataIntegrityViolationException ex) {
+                //E-mail cadastrado por outra requisição entre a validação e o INSERT
+                throw E_MAIL_DUPLICADO;
+            }
+            users.forEach(eventLog::created);
+            return users;
+        });
+
+        Cache missing = cacheManager.getCache(CacheConfig.MISSING_USERS);
+        users.forEach(user -> {
+            emailIndex.add(user.getEmail());
+            missing.evict(user.getId());
+        });
+
+        //Preenche o ID gerado nos itens criados, na mesma ordem da lista salva
+        int created = 0;
+        for (UserBatchResultDTO result : results) {
+            if (result.getError() == null) {
+                result.setId(users.get(created++).getId());
+            }
+        }
+        return results;
     }
 
+    //Importação em blocos de IMPORT_BATCH linhas - lê as linhas sob demanda e cada bloco passa pela criação em lote
+    //em uma transação própria, confirmada antes do próximo; a memória fica limitada a um bloco
     @Override
+    @Timed(TIMER)
+    public UserImportResultDTO importAll(Iterator<UserImportReader.Row> rows) {
+        UserImportResultDTO result = new UserImportResultDTO(0L, 0L, 0L, new ArrayList<>());
+        List<UserImportReader.Row> chunk = new ArrayList<>(IMPORT_BATCH);
+        while (rows.hasNext()) {
+            UserImportReader.Row row = rows.next();
+            result.setProcessed(result.getProcessed() + 1);
+            if (row.getError() != null) {
+                reject(result, row, row.getError());
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == IMPORT_BATCH) {
+                importChunk(result, chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(result, chunk);
+        }
+        //Linhas inválidas são rejeitadas na leitura e as duplicadas no bloco - devolve na ordem do arquivo
+        result.getErrors().sort(Comparator.comparing(UserBatchResultDTO::getIndex));
+        return result;
+    }
+
+    private void importChunk(UserImportResultDTO result, List<UserImportReader.Row> chunk) {
+        List<UserDTO> objs = chunk.stream().map(UserImportReader.Row::getUser).collect(Collectors.toList());
+        List<UserBatchResultDTO> results = null;
+        //Uma nova tentativa se outra requisição cadastrou um dos e-mails durante o bloco - a nova
+        //validação rejeita só as linhas duplicadas
+        for (int attempt = 0; attempt < 2 && results == null; attempt++) {
+            try {
+                results = createAll(objs);
+            } catch (DataIntegratyViolationException ex) {
+                results = null;
+            } finally {
+                //Libera as entidades do bloco do contexto de persistência (open-in-view)
+                entityManager.clear();
+            }
+        }
+        if (results == null) {
+            chunk.forEach(row -> reject(result, row, E_MAIL_JA_CADASTRADO));
+            return;
+        }
+        long created = 0;
+        for (UserBatchResultDTO item : results) {
+            if (item.getError() == null) {
+                created++;
+            } else {
+                reject(result, chunk.get(item.getIndex()), item.getError());
+            }
+        }
+        result.setCreated(result.getCreated() + created);
+        registry.counter(IMPORT_ROWS, "result", "created").increment(created);
+    }
+
+    private void reject(UserImportResultDTO result, UserImportReader.Row row, String error) {
+        result.setRejected(result.getRejected() + 1);
+        if (result.getErrors().size() < MAX_IMPORT_ERRORS) {
+            String email = row.getUser() == null ? null : row.getUser().getEmail();
+            result.getErrors().add(new UserBatchResultDTO((int) row.getLine(), null, email, HttpStatus.BAD_REQUEST.value(), error));
+        }
+        registry.counter(IMPORT_ROWS, "result", "rejected").increment();
+    }
+
+    @Override
+    @CacheEvict(value = CacheConfig.USERS, key = "#obj.id")
+    @Timed(TIMER)
     public User update(UserDTO obj) {
-        findByEmail(obj);
-        return repository.save(mapper.map(obj, User.class));
+        return update(obj, null);
     }
 
+    //Um único UPDATE versionado (sem o SELECT do merge) - com a versão informada (If-Match) a alteração
+    //só é aplicada se ninguém alterou o registro antes, caso contrário lança PreconditionFailedException (412)
+    //O hash da senha é calculado antes da transação - a conexão não fica presa durante o bcrypt
     @Override
+    @CacheEvict(value = CacheConfig.USERS, key = "#obj.id")
+    @Timed(TIMER)
+    public User update(UserDTO obj, Long version) {
+        User user = mapper.toEntity(obj);
+        user.setPassword(passwordHasher.encode(user.getPassword()));
+        if (writeBehind) {
+            if (version == null) {
+                return buffer(user);
+            }
+            //Com If-Match a versão precisa refletir as alterações pendentes do ID
+            flushPendingUpdate(user.getId());
+        }
+        //Sem If-Match, a versão do usuário em cache condiciona o UPDATE - alterada uma linha, a nova versão é a seguinte
+        //e o PUT custa um único comando; fora do cache (ou alterado desde a leitura) o UPDATE direto relê a versão
+        //Com o UPDATE na versão do cache, o e-mail em cache é o anterior à alteração
+        User cached = cacheManager.getCache(CacheConfig.USERS).get(user.getId(), User.class);
+        Long expected = version != null ? version : cached == null ? null : cached.getVersion();
+        String previousEmail = inTransaction(() -> {
+            String previous = null;
+            try {
+                if (expected != null && repository.updateByIdAndVersion(
+                        user.getId(), user.getName(), user.getEmail(), user.getPassword(), expected) > 0) {
+                    user.setVersion(expected + 1);
+                    if (cached != null && expected.equals(cached.getVersion())) {
+                        previous = cached.getEmail();
+                    }
+                } else if (version != null) {
+                    //Nenhuma linha alterada - ID inexistente (404) ou versão divergente (412)
+                    repository.findVersionById(user.getId()).orElseThrow(() -> OBJETO_NAO_ENCONTRADO);
+                    throw VERSAO_DIVERGENTE;
+                } else if (repository.updateById(user.getId(), user.getName(), user.getEmail(), user.getPassword()) > 0) {
+                    user.setVersion(repository.findVersionById(user.getId()).orElseThrow(() -> OBJETO_NAO_ENCONTRADO));
+                } else {
+                    throw OBJETO_NAO_ENCONTRADO;
+                }
+            } catch (DataIntegrityViolationException ex) {
+                throw E_MAIL_DUPLICADO;
+            }
+            eventLog.updated(user);
+            return previous;
+        });
+        //O e-mail anterior, se foi alterado, fica no índice até a próxima reconstrução
+        emailIndex.replace(previousEmail, user.getEmail());
+        return user;
+    }
+
+    //Atualização parcial - aplica apenas os campos informados (não nulos) na entidade gerenciada
+    //O dirty checking + @DynamicUpdate geram um UPDATE só com as colunas que mudaram (nenhum, se nada mudou)
+    @Override
+    @CacheEvict(value = CacheConfig.USERS, key = "#id")
+    @Timed(TIMER)
+    public User patch(Integer id, UserDTO obj, Long version) {
+        String password = passwordHasher.encode(obj.getPassword());
+        //A alteração pendente do ID é gravada antes - senão o flush sobrescreveria o PATCH
+        flushPendingUpdate(id);
+        return inTransaction(() -> {
+            User user = repository.findById(id).orElseThrow(() -> OBJETO_NAO_ENCONTRADO);
+            if (version != null && !version.equals(user.getVersion())) {
+                throw VERSAO_DIVERGENTE;
+            }
+            String email = user.getEmail();
+            Long previous = user.getVersion();
+            if (obj.getName() != null) {
+                user.setName(obj.getName());
+            }
+            if (obj.getEmail() != null) {
+                user.setEmail(obj.getEmail());
+            }
+            if (password != null) {
+                user.setPassword(password);
+            }
+            try {
+                repository.flush();
+            } catch (DataIntegrityViolationException ex) {
+                throw E_MAIL_DUPLICADO;
+            } catch (ObjectOptimisticLockingFailureException ex) {
+                //Alterado por outra requisição entre a leitura e o UPDATE versionado
+                throw VERSAO_DIVERGENTE;
+            }
+            //O flush incrementa a versão somente se alguma coluna mudou
+            if (!Objects.equals(previous, user.getVersion())) {
+                eventLog.updated(user);
+            }
+            emailIndex.replace(email, user.getEmail());
+            return user;
+        });
+    }
+
+    //Um único DELETE, sem carregar a entidade - nenhuma linha excluída significa ID inexistente
+    @Override
+    @CacheEvict(value = CacheConfig.USERS, key = "#id")
+    @Timed(TIMER)
     public void delete(Integer id) {
-        findById(id);
-        repository.deleteById(id);
+        pendingUpdates.remove(id);
+        inTransaction(() -> {
+            if (repository.deleteByIdIn(List.of(id)) == 0) {
+                throw OBJETO_NAO_ENCONTRADO;
+            }
+            eventLog.deleted(id);
+            return id;
+        });
+        emailIndex.markStale();
+    }
+
+    //Exclusão em lote - por bloco de DELETE_BATCH IDs: uma consulta dos IDs existentes e um único DELETE
+    //Os IDs saem do cache só depois do commit, como no delete - antes dele, um findById concorrente
+    //recolocaria no cache o usuário ainda não excluído e ele continuaria sendo lido até o fim do TTL
+    @Override
+    @Timed(TIMER)
+    public UserBatchDeleteResultDTO deleteAll(List<Integer> ids) {
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Integer> notFound = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        int deleted = inTransaction(() -> {
+            int rows = 0;
+            for (int i = 0; i < distinct.size(); i += DELETE_BATCH) {
+                List<Integer> chunk = distinct.subList(i, Math.min(i + DELETE_BATCH, distinct.size()));
+                Set<Integer> existing = new HashSet<>(repository.findIdsIn(chunk));
+                chunk.stream().filter(id -> !existing.contains(id)).forEach(notFound::add);
+                if (!existing.isEmpty()) {
+                    existing.forEach(pendingUpdates::remove);
+                    rows += repository.deleteByIdIn(existing);
+                    existing.forEach(eventLog::deleted);
+                    removed.addAll(existing);
+                }
+            }
+            return rows;
+        });
+        Cache users = cacheManager.getCache(CacheConfig.USERS);
+        removed.forEach(users::evict);
+        emailIndex.markStale(deleted);
+        return new UserBatchDeleteResultDTO(deleted, notFound);
+    }
+
+    //Long-poll dos eventos após o offset - a resposta fica pendente (sem ocupar a thread) até um novo evento ou o timeout
+    @Override
+    public CompletableFuture<List<UserEventDTO>> findEventsAfter(Long after, int limit, long timeout) {
+        return eventLog.poll(after, limit, Math.min(timeout, MAX_EVENTS_TIMEOUT));
+    }
+
+    //Guarda o PUT até o próximo flush - sem a versão (ainda não gravado), o resource responde 202
+    private User buffer(User user) {
+        //A existência do ID é conferida no primeiro PUT - os seguintes apenas substituem a alteração pendente
+        if (!pendingUpdates.containsKey(user.getId())) {
+            findVersion(user.getId());
+        }
+        user.setVersion(null);
+        pendingUpdates.put(user.getId(), user);
+        registry.counter(WRITE_BEHIND, "result", "buffered").increment();
+        if (pendingUpdates.size() >= maxPendingUpdates) {
+            flushPendingUpdates();
+        }
+        return user;
+    }
+
+    //Grava as alterações pendentes - periodicamente e no encerramento (antes do fechamento do DataSource)
+    @Scheduled(fixedDelayString = "${api.write-behind.interval:100}")
+    @PreDestroy
+    public void flushPendingUpdates() {
+        if (pendingUpdates.isEmpty()) {
+            return;
+        }
+        synchronized (flushLock) {
+            List<User> batch = new ArrayList<>(pendingUpdates.size());
+            for (Integer id : pendingUpdates.keySet()) {
+                //Marcado como em gravação antes de sair do buffer - o flushPendingUpdate(id) nunca deixa de vê-lo
+                writingUpdates.add(id);
+                User user = pendingUpdates.remove(id);
+                if (user != null) {
+                    batch.add(user);
+                } else {
+                    writingUpdates.remove(id);
+                }
+            }
+            try {
+                writePending(batch);
+            } finally {
+                batch.forEach(user -> writingUpdates.remove(user.getId()));
+            }
+        }
+    }
+
+    //Sem alteração pendente do ID (ou sem write-behind) retorna na hora, sem lock; senão usa o mesmo lock do flush
+    //periódico - se ele já removeu o PUT do ID e ainda está gravando, aguarda o commit, senão o PATCH (ou PUT com
+    //If-Match) seria gravado antes e sobrescrito pelo PUT mais antigo
+    private void flushPendingUpdate(Integer id) {
+        if (!writeBehind || (!pendingUpdates.containsKey(id) && !writingUpdates.contains(id))) {
+            return;
+        }
+        synchronized (flushLock) {
+            User user = pendingUpdates.remove(id);
+            if (user != null) {
+                writePending(List.of(user));
+            }
+        }
+    }
+
+    private void writePending(List<User> batch) {
+        List<Written> written;
+        try {
+            written = inTransaction(() -> write(batch));
+        } catch (DataIntegratyViolationException | ObjectOptimisticLockingFailureException ex) {
+            //Uma alteração inválida (ou um ID excluído durante o flush) não descarta o lote inteiro - grava cada uma
+            //na sua transação
+            written = new ArrayList<>(batch.size());
+            for (User user : batch) {
+                try {
+                    written.addAll(inTransaction(() -> write(List.of(user))));
+                } catch (DataIntegratyViolationException | ObjectOptimisticLockingFailureException e) {
+                    registry.counter(WRITE_BEHIND, "result", "failed").increment();
+                }
+            }
+        }
+        registry.counter(WRITE_BEHIND, "result", "written").increment(written.size());
+        Cache users = cacheManager.getCache(CacheConfig.USERS);
+        for (Written item : written) {
+            users.evict(item.user().getId());
+            emailIndex.replace(item.previousEmail(), item.user().getEmail());
+        }
+    }
+
+    //Aplica os PUTs nas entidades do lote, carregadas em uma única consulta (id in) - o flush envia os UPDATEs em
+    //lotes de hibernate.jdbc.batch_size e a versão incrementada pelo Hibernate já fica na entidade, sem releitura
+    //ID excluído depois do PUT não é encontrado - não altera nenhuma linha (nem gera evento)
+    //O usuário em buffer não é alterado: é o mesmo objeto devolvido ao resource (202 sem versão)
+    private List<Written> write(List<User> batch) {
+        Map<Integer, User> managed = repository.findAllById(batch.stream().map(User::getId).collect(Collectors.toList()))
+                .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+        List<Written> written = new ArrayList<>(batch.size());
+        for (User user : batch) {
+            User entity = managed.get(user.getId());
+            if (entity != null) {
+                written.add(new Written(entity, entity.getEmail()));
+                entity.setName(user.getName());
+                entity.setEmail(user.getEmail());
+                entity.setPassword(user.getPassword());
+            }
+        }
+        try {
+            repository.flush();
+        } catch (DataIntegrityViolationException ex) {
+            throw E_MAIL_DUPLICADO;
+        }
+        written.forEach(item -> eventLog.updated(item.user()));
+        return written;
+    }
+
+    //Entidade gravada pelo flush e o e-mail que ela tinha antes - o índice de e-mails só muda se ele mudou
+    private record Written(User user, String previousEmail) {
+    }
+
+    //Transação programática - permite executar o hash das senhas fora dela no mesmo método
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+
+    //Primeira página com no máximo MAX_PAGE_SIZE registros
+    private static Pageable limit(int limit) {
+        return PageRequest.of(0, UserQueries.limit(limit));
     }
 
-    private void findByEmail(UserDTO obj) {
-        Optional<User> user = repository.findByEmail(obj.getEmail());
-        if(user.isPresent() && !user.get().getId().equals(obj.getId())) {
-            throw new DataIntegratyViolationException("E-mail já cadastrado no sistema");
+    //A unicidade do e-mail é garantida pela constraint unique (User.email) - sem SELECT prévio,
+    //um único round trip e sem janela de concorrência entre a verificação e o INSERT
+    private User saveAndFlush(User user) {
+        try {
+            return repository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException ex) {
+            throw E_MAIL_DUPLICADO;
         }
     }
 }
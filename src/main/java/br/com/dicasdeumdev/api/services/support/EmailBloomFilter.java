@@ -0,0 +1,83 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Filtro de Bloom de e-mails - "não contém" é definitivo, "contém" pode ser falso positivo
+//Seguro para uso concorrente: os bits só são ligados, nunca desligados
+public class EmailBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong elements = new AtomicLong();
+
+    //Dimensiona o filtro para a quantidade esperada de e-mails e a taxa de falso positivo desejada
+    public EmailBloomFilter(long expectedElements, double fpp) {
+        long n = Math.max(1, expectedElements);
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) Math.max(1, (m + 63) >>> 6));
+        this.bitCount = (long) bits.length() << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void put(String email) {
+        if (email == null) {
+            return;
+        }
+        long hash = hash(email);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            long mask = 1L << index;
+            int word = (int) (index >>> 6);
+            if ((bits.get(word) & mask) == 0) {
+                bits.accumulateAndGet(word, mask, (a, b) -> a | b);
+            }
+        }
+        elements.incrementAndGet();
+    }
+
+    public boolean mightContain(String email) {
+        if (email == null) {
+            return false;
+        }
+        long hash = hash(email);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Taxa de falso positivo estimada para a quantidade de e-mails inseridos: (1 - e^(-k*n/m))^k
+    public double expectedFpp() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) elements.get() / bitCount), hashCount);
+    }
+
+    public long elements() {
+        return elements.get();
+    }
+
+    public long memoryBytes() {
+        return (long) bits.length() * Long.BYTES;
+    }
+
+    //FNV-1a 64 bits seguido do finalizador do SplitMix64 - os 32 bits altos e baixos formam os dois hashes
+    private static long hash(String email) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : email.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
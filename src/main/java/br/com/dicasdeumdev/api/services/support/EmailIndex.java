@@ -0,0 +1,151 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.repositories.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+//Índice em memória dos e-mails cadastrados (filtro de Bloom) - evita consultar o banco quando o e-mail é certamente novo
+//Enquanto não for construído, responde "pode existir" para tudo (o banco continua sendo consultado)
+public class EmailIndex {
+
+    @Autowired
+    private UserRepository repository;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    //Taxa de falso positivo desejada
+    @Value("${api.email-index.fpp:0.01}")
+    private double fpp;
+
+    //Proporção de e-mails removidos/alterados (ainda presentes no filtro) que dispara a reconstrução
+    @Value("${api.email-index.stale-ratio:0.2}")
+    private double staleRatio;
+
+    //E-mails lidos por consulta na reconstrução
+    @Value("${api.email-index.rebuild-batch:1000}")
+    private int rebuildBatch;
+
+    private volatile EmailBloomFilter filter;
+
+    //Filtro em construção - recebe também os e-mails cadastrados durante a reconstrução
+    private volatile EmailBloomFilter building;
+
+    private final AtomicLong stale = new AtomicLong();
+
+    private Counter negatives;
+    private Counter positives;
+    private Counter falsePositives;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("api.email_index.fpp.expected", this, x -> x.filter == null ? 1.0 : x.filter.expectedFpp())
+                .description("Taxa de falso positivo estimada").register(registry);
+        Gauge.builder("api.email_index.memory", this, x -> x.filter == null ? 0 : x.filter.memoryBytes())
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("api.email_index.elements", this, x -> x.filter == null ? 0 : x.filter.elements())
+                .register(registry);
+        negatives = registry.counter("api.email_index.lookups", "result", "negative");
+        positives = registry.counter("api.email_index.lookups", "result", "positive");
+        falsePositives = registry.counter("api.email_index.lookups", "result", "false_positive");
+    }
+
+    //false = e-mail certamente não cadastrado
+    public boolean mightExist(String email) {
+        EmailBloomFilter current = filter;
+        if (current == null) {
+            return true;
+        }
+        boolean result = current.mightContain(email);
+        (result ? positives : negatives).increment();
+        return result;
+    }
+
+    //Registra os positivos que o banco não confirmou - taxa observada = false_positive / (positive + negative)
+    public void recordFalsePositives(long count) {
+        falsePositives.increment(count);
+    }
+
+    public void add(String email) {
+        EmailBloomFilter current = filter;
+        if (current != null) {
+            current.put(email);
+        }
+        EmailBloomFilter next = building;
+        if (next != null) {
+            next.put(email);
+        }
+    }
+
+    //E-mail gravado por uma alteração - o anterior só é contado como desatualizado se o e-mail mudou
+    //Sem o e-mail anterior (null), um e-mail que já está no filtro é tratado como inalterado: o custo de um falso
+    //positivo é apenas um e-mail antigo não contado, nunca um e-mail cadastrado fora do filtro
+    public void replace(String previous, String email) {
+        boolean changed = previous == null ? !contains(email) : !previous.equals(email);
+        if (changed) {
+            markStale();
+            add(email);
+        }
+    }
+
+    //Presente no filtro atual e no filtro em construção - sem contar como consulta
+    private boolean contains(String email) {
+        EmailBloomFilter current = filter;
+        EmailBloomFilter next = building;
+        return (current == null || current.mightContain(email)) && (next == null || next.mightContain(email));
+    }
+
+    //E-mail que deixou de existir (delete ou alteração) - o filtro não permite remoção: o e-mail continua nele
+    //e apenas é contado como desatualizado, antecipando a próxima reconstrução
+    public void markStale() {
+        markStale(1);
+    }
+
+    public void markStale(long count) {
+        stale.addAndGet(count);
+    }
+
+    //Na inicialização e periodicamente: reconstrói quando o filtro está desatualizado ou acima da capacidade
+    @Scheduled(initialDelay = 0, fixedDelayString = "${api.email-index.check-interval:60000}")
+    public void maintain() {
+        EmailBloomFilter current = filter;
+        if (current == null || current.expectedFpp() > fpp * 2 || stale.get() > current.elements() * staleRatio) {
+            rebuild();
+        }
+    }
+
+    //Constrói um novo filtro em blocos de api.email-index.rebuild-batch usuários por chave (ID), cada bloco em uma
+    //consulta curta - sem cursor nem transação abertos durante a reconstrução e sem bloquear as consultas ao filtro
+    //atual; e-mails gravados durante a reconstrução entram pelo add() também no filtro em construção
+    //É sempre uma releitura completa dos e-mails: o filtro de Bloom não permite remover os e-mails antigos
+    public void rebuild() {
+        long count = repository.count();
+        EmailBloomFilter next = new EmailBloomFilter(Math.max(1024, count * 2), fpp);
+        building = next;
+        long staleBefore = stale.get();
+        int after = 0;
+        List<UserDTO> users;
+        do {
+            users = repository.findProjectedByIdGreaterThan(after, PageRequest.of(0, rebuildBatch));
+            for (UserDTO user : users) {
+                next.put(user.getEmail());
+                after = user.getId();
+            }
+        } while (users.size() == rebuildBatch);
+        filter = next;
+        building = null;
+        stale.addAndGet(-staleBefore);
+    }
+}
@@ -0,0 +1,139 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import br.com.dicasdeumdev.api.config.CacheConfig;
+import br.com.dicasdeumdev.api.services.exceptions.IdempotencyKeyMismatchException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+@Component
+//Execução única por Idempotency-Key - o ID criado fica no cache IDEMPOTENCY_KEYS junto com a impressão digital
+//do corpo da requisição; repetições com o mesmo corpo recebem o mesmo ID e com outro corpo são rejeitadas (422)
+//Requisições simultâneas com a mesma chave aguardam a criação em andamento (single-flight) - a criação roda
+//fora do Cache, que só recebe o resultado depois do sucesso; falhas não são guardadas
+public class IdempotencyKeys {
+
+    //Requisições com Idempotency-Key por resultado (created/replayed/coalesced/mismatch)
+    private static final String REQUESTS = "api.idempotency.requests";
+
+    private static final IdempotencyKeyMismatchException CORPO_DIVERGENTE =
+            new IdempotencyKeyMismatchException("Idempotency-Key já utilizada com outro corpo de requisição");
+
+    //Resultado da requisição - ID criado e se foi uma repetição (sem nova criação)
+    public record Result(Integer id, boolean replayed) {
+    }
+
+    private record Entry(Integer id, String fingerprint) {
+    }
+
+    private record Flight(String fingerprint, CompletableFuture<Integer> id) {
+    }
+
+    private final CacheManager cacheManager;
+
+    private final MeterRegistry registry;
+
+    //Chave do HMAC das impressões digitais - o corpo inclui a senha, que não fica em memória com um hash sem segredo
+    private final Key fingerprintKey;
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyKeys(CacheManager cacheManager, MeterRegistry registry) {
+        this.cacheManager = cacheManager;
+        this.registry = registry;
+        try {
+            this.fingerprintKey = KeyGenerator.getInstance("HmacSHA256").generateKey();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public Result execute(String key, String fingerprint, Supplier<Integer> create) {
+        Cache cache = cacheManager.getCache(CacheConfig.IDEMPOTENCY_KEYS);
+        Entry stored = cache.get(key, Entry.class);
+        if (stored != null) {
+            return replay(stored.fingerprint(), fingerprint, stored.id());
+        }
+
+        Flight flight = new Flight(fingerprint, new CompletableFuture<>());
+        Flight current = inFlight.putIfAbsent(key, flight);
+        //Criação em andamento para a chave - aguarda o resultado dela
+        if (current != null) {
+            if (!current.fingerprint().equals(fingerprint)) {
+                registry.counter(REQUESTS, "result", "mismatch").increment();
+                throw CORPO_DIVERGENTE;
+            }
+            registry.counter(REQUESTS, "result", "coalesced").increment();
+            try {
+                return new Result(current.id().join(), true);
+            } catch (CompletionException ex) {
+                throw rethrow(ex.getCause());
+            }
+        }
+
+        try {
+            //Uma criação concluída entre a consulta do cache e o registro da chave
+            stored = cache.get(key, Entry.class);
+            if (stored != null) {
+                flight.id().complete(stored.id());
+                return replay(stored.fingerprint(), fingerprint, stored.id());
+            }
+            Integer id = create.get();
+            cache.put(key, new Entry(id, fingerprint));
+            flight.id().complete(id);
+            registry.counter(REQUESTS, "result", "created").increment();
+            return new Result(id, false);
+        } catch (RuntimeException | Error ex) {
+            flight.id().completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    //Impressão digital dos campos do corpo - cada campo com o tamanho, para "ab","c" diferir de "a","bc" (e null de "")
+    public String fingerprint(String... fields) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(fingerprintKey);
+            for (String field : fields) {
+                byte[] bytes = field == null ? new byte[0] : field.getBytes(StandardCharsets.UTF_8);
+                mac.update(ByteBuffer.allocate(Integer.BYTES).putInt(field == null ? -1 : bytes.length).array());
+                mac.update(bytes);
+            }
+            return Base64.getEncoder().encodeToString(mac.doFinal());
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Result replay(String stored, String fingerprint, Integer id) {
+        if (!stored.equals(fingerprint)) {
+            registry.counter(REQUESTS, "result", "mismatch").increment();
+            throw CORPO_DIVERGENTE;
+        }
+        registry.counter(REQUESTS, "result", "replayed").increment();
+        return new Result(id, true);
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return (RuntimeException) cause;
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+//Hash das senhas em um pool dedicado e limitado (PasswordConfig) - no máximo um hash por thread do pool
+//em execução, o custo de CPU do bcrypt não compete com as demais requisições
+public class PasswordHasher {
+
+    private final PasswordEncoder encoder;
+    private final Executor executor;
+
+    public PasswordHasher(PasswordEncoder encoder, Executor executor) {
+        this.encoder = encoder;
+        this.executor = executor;
+    }
+
+    //Hash assíncrono - senha nula (não informada) continua nula
+    public CompletableFuture<String> hash(String password) {
+        if (password == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(() -> encoder.encode(password), executor);
+    }
+
+    //Aguarda o hash no pool - utilizado pelo service bloqueante
+    public String encode(String password) {
+        try {
+            return hash(password).join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+
+    public void shutdown() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdown();
+        }
+    }
+}
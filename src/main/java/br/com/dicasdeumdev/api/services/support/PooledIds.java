@@ -0,0 +1,30 @@
+package br.com.dicasdeumdev.api.services.support;
+
+//IDs de uma sequence com incremento em blocos (allocationSize) - cada valor lido da sequence é o limite superior
+//de um bloco de IDs distribuídos em memória, como o otimizador pooled do Hibernate; quem divide a sequence com o
+//Hibernate (o insert do R2DBC) consome um valor a cada bloco, e não um bloco inteiro a cada ID
+public class PooledIds {
+
+    private final int blockSize;
+
+    //Próximo ID do bloco atual e o último ID do bloco (next > last = bloco esgotado)
+    private long next = 1;
+    private long last = 0;
+
+    public PooledIds(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    //Próximo ID do bloco atual - null quando é preciso ler um novo valor da sequence
+    public synchronized Integer next() {
+        return next <= last ? Math.toIntExact(next++) : null;
+    }
+
+    //Novo bloco (value - blockSize, value] a partir do valor lido da sequence e devolve o primeiro ID dele
+    //Leituras concorrentes com o bloco esgotado descartam os IDs restantes do bloco substituído (lacunas, sem repetição)
+    public synchronized int allocate(long value) {
+        last = value;
+        next = Math.max(1, value - blockSize + 1);
+        return Math.toIntExact(next++);
+    }
+}
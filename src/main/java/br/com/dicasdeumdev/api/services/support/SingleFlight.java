@@ -0,0 +1,64 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+@Component
+//Deduplicação de chamadas concorrentes (single-flight) - chamadas simultâneas com a mesma chave
+//aguardam e compartilham o resultado (ou a exceção) da primeira, que é a única a executar a carga
+public class SingleFlight {
+
+    private static final String CALLS = "api.single_flight.calls";
+
+    private final MeterRegistry registry;
+
+    private final Map<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, Object key, Supplier<T> loader) {
+        List<Object> flightKey = List.of(name, key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> current = inFlight.putIfAbsent(flightKey, flight);
+
+        //Já existe uma carga em andamento para a chave - aguarda o resultado dela
+        if (current != null) {
+            registry.counter(CALLS, "name", name, "result", "coalesced").increment();
+            try {
+                return (T) current.join();
+            } catch (CompletionException ex) {
+                throw rethrow(ex.getCause());
+            }
+        }
+
+        registry.counter(CALLS, "name", name, "result", "leader").increment();
+        try {
+            T result = loader.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            //Remove antes de uma nova chamada - as próximas voltam a consultar a origem
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return (RuntimeException) cause;
+    }
+}
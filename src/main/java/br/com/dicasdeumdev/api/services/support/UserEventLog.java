@@ -0,0 +1,221 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.UserEvent;
+import br.com.dicasdeumdev.api.domain.dto.UserEventDTO;
+import br.com.dicasdeumdev.api.repositories.UserEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+@Component
+//Outbox das alterações de usuário - os eventos da transação corrente são gravados no beforeCommit, na mesma
+//transação da alteração, e os consumidores em long-poll são avisados após o commit
+//Ordem: os IDs são alocados sob um lock curto (sem segurar o commit) e ficam registrados como pendentes até o fim
+//da transação; as consultas só entregam eventos abaixo do primeiro ID pendente, então um consumidor que continua
+//após o último ID recebido não perde eventos de um commit mais lento (garantido em uma única instância)
+//Transações desfeitas deixam lacunas nos IDs, que os consumidores simplesmente ignoram
+public class UserEventLog {
+
+    //Eventos por resposta
+    public static final int MAX_EVENTS = 1000;
+
+    @Autowired
+    private UserEventRepository repository;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    //Consulta dos eventos para os consumidores em espera - fora da thread que fez o commit
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private Executor executor;
+
+    @Value("${api.events.retention:7d}")
+    private Duration retention;
+
+    //Alocação dos IDs e leitura do limite visível - nunca fica adquirido durante o commit
+    private final Object allocation = new Object();
+
+    //IDs alocados por transações ainda não concluídas
+    private final NavigableSet<Long> pending = new ConcurrentSkipListSet<>();
+
+    //Maior ID alocado - iniciado com o maior ID gravado na primeira consulta
+    private long lastAllocated = -1;
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    @PostConstruct
+    public void registerMetrics() {
+        registry.gaugeCollectionSize("api.user.events.waiting", List.of(), waiters);
+    }
+
+    public void created(User user) {
+        append(event(UserEvent.Type.CREATED, user));
+    }
+
+    public void updated(User user) {
+        append(event(UserEvent.Type.UPDATED, user));
+    }
+
+    public void deleted(Integer id) {
+        append(new UserEvent(null, UserEvent.Type.DELETED, id, null, null, null, Instant.now()));
+    }
+
+    //Eventos após o offset - responde na hora se houver, senão aguarda o próximo commit até o timeout (lista vazia)
+    public CompletableFuture<List<UserEventDTO>> poll(Long after, int limit, long timeoutMillis) {
+        Waiter waiter = new Waiter(after == null ? 0 : after, Math.max(1, Math.min(limit, MAX_EVENTS)), new CompletableFuture<>());
+        //Registra a espera antes da consulta - um commit entre as duas também completa a espera
+        waiters.add(waiter);
+        waiter.future().whenComplete((events, ex) -> waiters.remove(waiter));
+        List<UserEventDTO> events = committed(waiter.after(), waiter.limit());
+        if (!events.isEmpty() || timeoutMillis <= 0) {
+            waiter.future().complete(events);
+        } else {
+            waiter.future().completeOnTimeout(List.of(), timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return waiter.future();
+    }
+
+    //Retenção - consumidores com offset anterior aos eventos removidos precisam reler GET /user
+    @Scheduled(initialDelayString = "${api.events.purge-interval:3600000}", fixedDelayString = "${api.events.purge-interval:3600000}")
+    public void purge() {
+        repository.deleteByCreatedAtBefore(Instant.now().minus(retention));
+    }
+
+    private static UserEvent event(UserEvent.Type type, User user) {
+        return new UserEvent(null, type, user.getId(), user.getName(), user.getEmail(), user.getVersion(), Instant.now());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void append(UserEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Evento de usuário fora de uma transação");
+        }
+        List<UserEvent> events = (List<UserEvent>) TransactionSynchronizationManager.getResource(this);
+        if (events == null) {
+            events = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new Outbox(events));
+        }
+        events.add(event);
+    }
+
+    private void notifyWaiters() {
+        if (!waiters.isEmpty() && dispatching.compareAndSet(false, true)) {
+            executor.execute(this::dispatch);
+        }
+    }
+
+    //Uma consulta a partir do menor offset atende todos os consumidores em espera cujo offset está na janela
+    //de MAX_EVENTS eventos - com a janela cheia, os consumidores após ela são atendidos por uma nova consulta
+    private void dispatch() {
+        //Um commit durante a consulta agenda uma nova entrega
+        dispatching.set(false);
+        long after = waiters.stream().mapToLong(Waiter::after).min().orElse(-1);
+        while (after >= 0) {
+            List<UserEventDTO> events = committed(after, MAX_EVENTS);
+            for (Waiter waiter : waiters) {
+                List<UserEventDTO> pending = events.stream().filter(event -> event.getId() > waiter.after())
+                        .limit(waiter.limit()).collect(Collectors.toList());
+                if (!pending.isEmpty()) {
+                    waiter.future().complete(pending);
+                }
+            }
+            //Janela incompleta ou cortada em um ID pendente - o commit pendente agenda a próxima entrega
+            if (events.size() < MAX_EVENTS) {
+                return;
+            }
+            long last = events.get(events.size() - 1).getId();
+            after = waiters.stream().filter(waiter -> !waiter.future().isDone()).mapToLong(Waiter::after)
+                    .filter(offset -> offset >= last).min().orElse(-1);
+        }
+    }
+
+    //Eventos após o offset com ID abaixo do primeiro ainda pendente - o limite é lido antes da consulta, então todo
+    //ID menor já foi confirmado (ou desfeito) quando a consulta executa e nenhum evento fica para trás
+    private List<UserEventDTO> committed(long after, int limit) {
+        long visible = visibleBefore();
+        List<UserEventDTO> events = repository.findAfter(after, PageRequest.of(0, limit));
+        if (events.isEmpty() || events.get(events.size() - 1).getId() < visible) {
+            return events;
+        }
+        return events.stream().takeWhile(event -> event.getId() < visible).collect(Collectors.toList());
+    }
+
+    private long visibleBefore() {
+        synchronized (allocation) {
+            if (lastAllocated < 0) {
+                lastAllocated = repository.findMaxId();
+            }
+            return pending.isEmpty() ? lastAllocated + 1 : pending.first();
+        }
+    }
+
+    //O persist atribui os IDs da sequence (o INSERT só acontece no flush, fora do lock)
+    private void allocate(List<UserEvent> events) {
+        synchronized (allocation) {
+            repository.saveAll(events);
+            for (UserEvent event : events) {
+                pending.add(event.getId());
+                lastAllocated = Math.max(lastAllocated, event.getId());
+            }
+        }
+    }
+
+    private record Waiter(long after, int limit, CompletableFuture<List<UserEventDTO>> future) {
+    }
+
+    //Eventos de uma transação - IDs alocados e gravados no beforeCommit, pendentes até o fim da transação
+    private class Outbox implements TransactionSynchronization {
+
+        private final List<UserEvent> events;
+
+        Outbox(List<UserEvent> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            allocate(events);
+            repository.flush();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(UserEventLog.this);
+            //Com ou sem commit, liberar os IDs pode tornar visíveis eventos de outras transações já confirmadas
+            boolean released = false;
+            for (UserEvent event : events) {
+                released |= event.getId() != null && pending.remove(event.getId());
+            }
+            if (released) {
+                notifyWaiters();
+            }
+        }
+    }
+}
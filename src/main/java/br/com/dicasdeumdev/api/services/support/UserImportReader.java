@@ -0,0 +1,188 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+//Leitura incremental de um arquivo de importação - uma linha por vez, sem carregar o arquivo em memória
+//CSV: primeira linha com o cabeçalho (name, email e password, em qualquer ordem), campos entre aspas opcionais
+//NDJSON: um objeto JSON por linha, no mesmo formato do POST /user
+public class UserImportReader implements Iterator<UserImportReader.Row> {
+
+    public enum Format { CSV, NDJSON }
+
+    @Getter
+    @AllArgsConstructor
+    //Linha lida do arquivo - o usuário ou o motivo da rejeição
+    public static class Row {
+        //Número da linha no arquivo (começa em 1)
+        private final long line;
+        private final UserDTO user;
+        private final String error;
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+
+    //Posição de name, email e password nas colunas do CSV
+    private int[] columns;
+    private long line;
+    private Row next;
+    private boolean done;
+
+    public UserImportReader(InputStream input, Format format, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = read();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    private Row read() {
+        String text;
+        //Ignora as linhas em branco
+        do {
+            text = done ? null : readLine();
+            if (text == null) {
+                return null;
+            }
+        } while (text.isBlank());
+
+        if (format == Format.NDJSON) {
+            return parseJson(text);
+        }
+        if (columns == null) {
+            columns = header(split(text));
+            if (columns == null) {
+                //Sem o cabeçalho as colunas não podem ser identificadas - encerra a leitura
+                done = true;
+                return new Row(line, null, "Cabeçalho do CSV deve conter as colunas name, email e password");
+            }
+            return read();
+        }
+        return parseCsv(text);
+    }
+
+    private Row parseJson(String text) {
+        try {
+            UserDTO user = objectMapper.readValue(text, UserDTO.class);
+            //A linha "null" é um JSON válido, mas sem usuário
+            return user == null ? new Row(line, null, "JSON inválido") : validate(user);
+        } catch (JsonProcessingException ex) {
+            return new Row(line, null, "JSON inválido");
+        }
+    }
+
+    private Row parseCsv(String text) {
+        List<String> fields = split(text);
+        if (fields == null) {
+            return new Row(line, null, "Linha do CSV inválida");
+        }
+        UserDTO user = new UserDTO(null, field(fields, columns[0]), field(fields, columns[1]), field(fields, columns[2]));
+        return validate(user);
+    }
+
+    private Row validate(UserDTO user) {
+        if (user.getEmail() == null || user.getEmail().indexOf('@') < 1) {
+            return new Row(line, user, "E-mail inválido");
+        }
+        //O ID é gerado pela sequence
+        user.setId(null);
+        return new Row(line, user, null);
+    }
+
+    private static int[] header(List<String> fields) {
+        int[] positions = {-1, -1, -1};
+        if (fields != null) {
+            for (int i = 0; i < fields.size(); i++) {
+                switch (fields.get(i).trim().toLowerCase(Locale.ROOT)) {
+                    case "name" -> positions[0] = i;
+                    case "email" -> positions[1] = i;
+                    case "password" -> positions[2] = i;
+                    default -> { }
+                }
+            }
+        }
+        return positions[0] < 0 || positions[1] < 0 || positions[2] < 0 ? null : positions;
+    }
+
+    private static String field(List<String> fields, int position) {
+        return position < fields.size() && !fields.get(position).isEmpty() ? fields.get(position) : null;
+    }
+
+    //Separa os campos da linha - aspas delimitam campos com vírgula e "" representa uma aspa
+    //Retorna null se uma aspa não foi fechada (campos com quebra de linha não são suportados)
+    static List<String> split(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private String readLine() {
+        try {
+            String text = reader.readLine();
+            if (text != null) {
+                line++;
+            }
+            return text;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
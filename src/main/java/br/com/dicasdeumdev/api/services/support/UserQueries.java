@@ -0,0 +1,21 @@
+package br.com.dicasdeumdev.api.services.support;
+
+//Limites e parâmetros das consultas de lista - os mesmos no UserServiceImpl e no ReactiveUserServiceImpl
+public final class UserQueries {
+
+    //Limite de registros por requisição nas consultas paginadas
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private UserQueries() {
+    }
+
+    //Quantidade de registros entre 1 e MAX_PAGE_SIZE
+    public static int limit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    //Escapa os curingas do LIKE (\, % e _) - o prefixo informado é comparado literalmente
+    public static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
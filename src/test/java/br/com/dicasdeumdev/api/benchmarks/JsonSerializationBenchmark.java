@@ -0,0 +1,49 @@
+package br.com.dicasdeumdev.api.benchmarks;
+
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Serialização JSON do UserDTO com o ObjectMapper configurado como no Spring Boot
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    //Quantidade de usuários na lista serializada
+    @Param({"1", "1000"})
+    public int dataSize;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private UserDTO userDTO;
+    private List<UserDTO> users;
+
+    @Setup
+    public void setUp() {
+        userDTO = new UserDTO(1, "Valdir", "valdir@mail.com", "123");
+        users = new ArrayList<>(dataSize);
+        for (int i = 0; i < dataSize; i++) {
+            users.add(new UserDTO(i, "User " + i, "user" + i + "@bench.com", "123"));
+        }
+    }
+
+    @Benchmark
+    public byte[] writeUser() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(userDTO);
+    }
+
+    @Benchmark
+    public byte[] writeUserList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(users);
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.dicasdeumdev.api.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+//Custo do hash de senha (bcrypt) por núcleo - com uma thread o resultado é a vazão de um núcleo,
+//a vazão do pool (api.password.threads = núcleos) é aproximadamente esse valor vezes o número de núcleos
+//Para medir a saturação de todos os núcleos: -Djmh.args="PasswordHash -t max"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PasswordHashBenchmark {
+
+    //api.password.bcrypt-strength - 10 é o padrão da aplicação
+    @Param({"8", "10", "12"})
+    private int strength;
+
+    private BCryptPasswordEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        encoder = new BCryptPasswordEncoder(strength);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode("123");
+    }
+}
@@ -0,0 +1,99 @@
+package br.com.dicasdeumdev.api.benchmarks;
+
+import br.com.dicasdeumdev.api.resources.exceptions.ResourceExceptionHandler;
+import br.com.dicasdeumdev.api.resources.exceptions.StandardError;
+import br.com.dicasdeumdev.api.services.exceptions.DataIntegratyViolationException;
+import br.com.dicasdeumdev.api.services.exceptions.ObjectNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//Caminho de erro: lançamento da exceção de negócio a partir de uma pilha de "depth" frames
+//(simulando os proxies do Spring) + montagem do StandardError pelo handler
+//Para a taxa de alocação utilize o profiler de GC: -Djmh.args="ResourceExceptionHandler -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceExceptionHandlerBenchmark {
+
+    private static final String OBJETO_NAO_ENCONTRADO = "Objeto não encontrado";
+    private static final ObjectNotFoundException PREALLOCATED = new ObjectNotFoundException(OBJETO_NAO_ENCONTRADO);
+
+    @Param({"10", "100"})
+    private int depth;
+
+    private final ResourceExceptionHandler handler = new ResourceExceptionHandler();
+
+    private MeterRegistry registry;
+
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        request = new MockHttpServletRequest("GET", "/user/999");
+        registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(handler, "registry", registry);
+    }
+
+    //Antes: exceção com stack trace completo, LocalDateTime.now() e busca do contador com tags a cada erro
+    @Benchmark
+    public StandardError baselineStackTrace() {
+        try {
+            throwAt(depth, () -> new RuntimeException(OBJETO_NAO_ENCONTRADO));
+            return null;
+        } catch (RuntimeException ex) {
+            registry.counter("api.errors", "exception", ex.getClass().getSimpleName(), "status", "404").increment();
+            return new StandardError(LocalDateTime.now(), HttpStatus.NOT_FOUND.value(), ex.getMessage(), request.getRequestURI());
+        }
+    }
+
+    //Depois: nova exceção sem stack trace a cada erro
+    @Benchmark
+    public ResponseEntity<StandardError> objectNotFound() {
+        try {
+            throwAt(depth, () -> new ObjectNotFoundException(OBJETO_NAO_ENCONTRADO));
+            return null;
+        } catch (ObjectNotFoundException ex) {
+            return handler.objectNotFound(ex, request);
+        }
+    }
+
+    //Depois: exceção pré-alocada, como lançada pelo UserServiceImpl
+    @Benchmark
+    public ResponseEntity<StandardError> objectNotFoundPreallocated() {
+        try {
+            throwAt(depth, () -> PREALLOCATED);
+            return null;
+        } catch (ObjectNotFoundException ex) {
+            return handler.objectNotFound(ex, request);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<StandardError> dataIntegrityViolation() {
+        try {
+            throwAt(depth, () -> new DataIntegratyViolationException("E-mail já cadastrado no sistema"));
+            return null;
+        } catch (DataIntegratyViolationException ex) {
+            return handler.dataIntegrityViolationException(ex, request);
+        }
+    }
+
+    private static void throwAt(int depth, Supplier<RuntimeException> exception) {
+        if (depth == 0) {
+            throw exception.get();
+        }
+        throwAt(depth - 1, exception);
+    }
+}
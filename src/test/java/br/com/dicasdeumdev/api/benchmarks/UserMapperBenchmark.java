@@ -0,0 +1,58 @@
+package br.com.dicasdeumdev.api.benchmarks;
+
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.mappers.impl.UserMapperImpl;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+//Comparação do mapeamento User <-> UserDTO: ModelMapper (reflexão) x UserMapperImpl
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final UserMapperImpl userMapper = new UserMapperImpl();
+
+    private User user;
+    private UserDTO userDTO;
+
+    @Setup
+    public void setUp() {
+        user = new User(1, "Valdir", "valdir@mail.com", "123");
+        userDTO = new UserDTO(1, "Valdir", "valdir@mail.com", "123");
+    }
+
+    @Benchmark
+    public UserDTO modelMapperToDTO() {
+        return modelMapper.map(user, UserDTO.class);
+    }
+
+    @Benchmark
+    public UserDTO userMapperToDTO() {
+        return userMapper.toDTO(user);
+    }
+
+    @Benchmark
+    public User modelMapperToEntity() {
+        return modelMapper.map(userDTO, User.class);
+    }
+
+    @Benchmark
+    public User userMapperToEntity() {
+        return userMapper.toEntity(userDTO);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(UserMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+}
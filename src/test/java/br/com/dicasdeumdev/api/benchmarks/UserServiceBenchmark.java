@@ -0,0 +1,106 @@
+package br.com.dicasdeumdev.api.benchmarks;
+
+import br.com.dicasdeumdev.api.ApiApplication;
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.repositories.UserRepository;
+import br.com.dicasdeumdev.api.services.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//UserServiceImpl contra o H2 em memória - dataSize define quantos usuários são carregados antes da medição
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final int BATCH = 1000;
+
+    @Param({"1000", "100000"})
+    public int dataSize;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private UserService service;
+    private UserRepository repository;
+    private int maxId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ApiApplication.class)
+                .web(WebApplicationType.NONE)
+                //Argumentos de linha de comando sobrepõem o application-local.properties (show-sql)
+                .run("--spring.jpa.show-sql=false");
+        service = context.getBean(UserService.class);
+        repository = context.getBean(UserRepository.class);
+
+        //Carga inicial em lotes
+        for (int i = 0; i < dataSize; i += BATCH) {
+            List<UserDTO> batch = new ArrayList<>(BATCH);
+            for (int j = i; j < Math.min(i + BATCH, dataSize); j++) {
+                batch.add(new UserDTO(null, "User " + j, "user" + j + "@bench.com", "123"));
+            }
+            service.createAll(batch);
+        }
+        maxId = (int) repository.count();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public User create() {
+        return service.create(new UserDTO(null, "Bench", "bench" + sequence.incrementAndGet() + "@bench.com", "123"));
+    }
+
+    //Leitura pelo service - passa pelo cache de usuários
+    @Benchmark
+    public User findById() {
+        return service.findById(ThreadLocalRandom.current().nextInt(1, maxId + 1));
+    }
+
+    //Leitura direto no repository - sempre consulta o banco
+    @Benchmark
+    public Object findByIdUncached() {
+        return repository.findById(ThreadLocalRandom.current().nextInt(1, maxId + 1));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<UserDTO> findAll() {
+        return service.findAll();
+    }
+
+    @Benchmark
+    public List<UserDTO> findAllAfter() {
+        return service.findAllAfter(ThreadLocalRandom.current().nextInt(0, maxId), 20);
+    }
+
+    //Busca por prefixo indexada - o custo deve se manter constante com o crescimento de dataSize
+    @Benchmark
+    public List<UserDTO> searchByName() {
+        return service.searchByName("User " + ThreadLocalRandom.current().nextInt(0, maxId), null, 0, 20);
+    }
+
+    //Página seguinte da busca por prefixo - continua após um nome/ID aleatório dentro do prefixo "User "
+    //O custo deve se manter constante com a profundidade da página e o crescimento de dataSize
+    @Benchmark
+    public List<UserDTO> searchByNameNextPage() {
+        int after = ThreadLocalRandom.current().nextInt(0, maxId);
+        return service.searchByName("User ", "User " + after, after + 1, 20);
+    }
+}
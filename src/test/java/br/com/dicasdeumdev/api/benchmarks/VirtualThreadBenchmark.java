@@ -0,0 +1,79 @@
+package br.com.dicasdeumdev.api.benchmarks;
+
+import br.com.dicasdeumdev.api.ApiApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+//Teste de carga: rajadas de requisições simultâneas com o pool padrão do Tomcat (200 threads) x virtual threads
+//Cada requisição fica bloqueada 50ms, simulando a espera de uma chamada JDBC
+//virtual=true exige Java 21: -Djmh.args="VirtualThread -jvm <jdk21>/bin/java -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VirtualThreadBenchmark {
+
+    private static final long BLOCKING_MILLIS = 50;
+
+    @Param({"false", "true"})
+    public boolean virtual;
+
+    //Requisições simultâneas por rajada - acima do limite de 200 threads do Tomcat
+    @Param({"200", "1000"})
+    public int concurrency;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ApiApplication.class, BlockingResource.class)
+                .run("--server.port=0", "--spring.jpa.show-sql=false", "--api.threads.virtual=" + virtual);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/bench/blocking")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //Tempo até todas as requisições da rajada serem respondidas
+    @Benchmark
+    public void burst() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        }
+        CompletableFuture.allOf(responses).join();
+    }
+
+    //Sem @RestController para não entrar no component scan dos testes - o bean só existe no contexto do benchmark,
+    //registrado no SpringApplicationBuilder, e o @RequestMapping no tipo basta para o mapeamento do Spring MVC
+    @ResponseBody
+    @RequestMapping("/bench")
+    public static class BlockingResource {
+
+        @GetMapping("/blocking")
+        public String blocking() throws InterruptedException {
+            Thread.sleep(BLOCKING_MILLIS);
+            return "ok";
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package br.com.dicasdeumdev.api.mappers.impl;
+
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserMapperImplTest {
+
+    private static final Integer ID      = 1;
+    private static final String NAME     = "Valdir";
+    private static final String EMAIL    = "valdir@mail.com";
+    private static final String PASSWORD = "123";
+
+    private final UserMapperImpl mapper = new UserMapperImpl();
+
+    //Implementação anterior, utilizada como referência do comportamento esperado
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    private User user;
+    private UserDTO userDTO;
+
+    @BeforeEach
+    void setUp() {
+        user = new User(ID, NAME, EMAIL, PASSWORD);
+        userDTO = new UserDTO(ID, NAME, EMAIL, PASSWORD);
+    }
+
+    @Test
+    @DisplayName("Entidade para DTO - igual ao ModelMapper")
+    void whenToDTOThenReturnTheSameAsModelMapper() {
+        UserDTO response = mapper.toDTO(user);
+        UserDTO expected = modelMapper.map(user, UserDTO.class);
+
+        assertEquals(expected.getId(), response.getId());
+        assertEquals(expected.getName(), response.getName());
+        assertEquals(expected.getEmail(), response.getEmail());
+        assertEquals(expected.getPassword(), response.getPassword());
+    }
+
+    @Test
+    @DisplayName("DTO para Entidade - igual ao ModelMapper")
+    void whenToEntityThenReturnTheSameAsModelMapper() {
+        User response = mapper.toEntity(userDTO);
+
+        //User tem equals gerado pelo Lombok (@Data)
+        assertEquals(modelMapper.map(userDTO, User.class), response);
+    }
+
+    @Test
+    @DisplayName("Objeto nulo - retorna nulo")
+    void whenNullThenReturnNull() {
+        assertNull(mapper.toDTO(null));
+        assertNull(mapper.toEntity(null));
+    }
+}
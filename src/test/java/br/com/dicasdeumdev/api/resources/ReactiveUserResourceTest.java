@@ -0,0 +1,91 @@
+package br.com.dicasdeumdev.api.resources;
+
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+//Sobe a aplicação com o profile reactive (WebFlux + R2DBC) e valida o contrato de /user
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles({"local", "reactive"})
+class ReactiveUserResourceTest {
+
+    private static final String NAME     = "Valdir";
+    private static final String EMAIL    = "valdir@mail.com";
+    private static final String PASSWORD = "123";
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    @DisplayName("Consulta por ID - com sucesso")
+    void whenFindByIdThenReturnSuccess() {
+        client.get().uri("/user/1").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.name").isEqualTo(NAME)
+                .jsonPath("$.email").isEqualTo(EMAIL)
+                //A senha não é serializada (WRITE_ONLY)
+                .jsonPath("$.password").doesNotExist();
+    }
+
+    @Test
+    @DisplayName("Consulta por ID - Objeto não encontrado")
+    void whenFindByIdThenReturnNotFound() {
+        client.get().uri("/user/999").exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.error").isEqualTo("Objeto não encontrado")
+                .jsonPath("$.path").isEqualTo("/user/999");
+    }
+
+    @Test
+    @DisplayName("Cria, atualiza e deleta Usuario - com sucesso")
+    void whenCreateUpdateAndDeleteThenReturnSuccess() {
+        String location = client.post().uri("/user")
+                .bodyValue(new UserDTO(null, "Reativo", "reativo@mail.com", PASSWORD))
+                .exchange()
+                .expectStatus().isCreated()
+                .returnResult(Void.class).getResponseHeaders().getLocation().getPath();
+        assertNotNull(location);
+
+        client.put().uri(location)
+                .bodyValue(new UserDTO(null, "Reativo 2", "reativo@mail.com", PASSWORD))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.name").isEqualTo("Reativo 2");
+
+        client.delete().uri(location).exchange().expectStatus().isNoContent();
+        client.get().uri(location).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Cria Usuario - E-mail já cadastrado")
+    void whenCreateThenReturnDataIntegrityViolation() {
+        client.post().uri("/user")
+                .bodyValue(new UserDTO(null, NAME, EMAIL, PASSWORD))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.error").isEqualTo("E-mail já cadastrado no sistema");
+    }
+
+    @Test
+    @DisplayName("Lista Usuarios por chave (keyset) - com sucesso")
+    void whenFindAllAfterThenReturnNextUsers() {
+        client.get().uri("/user?afterId=1&limit=1").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(2);
+    }
+}
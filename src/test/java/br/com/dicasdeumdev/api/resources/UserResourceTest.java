@@ -1,26 +1,61 @@
 package br.com.dicasdeumdev.api.resources;
 
 import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.UserEvent;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchDeleteResultDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchResultDTO;
 import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserEventDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserImportResultDTO;
+import br.com.dicasdeumdev.api.mappers.UserMapper;
+import br.com.dicasdeumdev.api.services.exceptions.DataIntegratyViolationException;
+import br.com.dicasdeumdev.api.services.exceptions.IdempotencyKeyMismatchException;
 import br.com.dicasdeumdev.api.services.impl.UserServiceImpl;
+import br.com.dicasdeumdev.api.services.support.IdempotencyKeys;
+import br.com.dicasdeumdev.api.services.support.UserImportReader;
+import br.com.dicasdeumdev.api.services.support.UserQueries;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.modelmapper.ModelMapper;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -31,6 +66,7 @@ class UserResourceTest {
     private static final String NAME     = "Valdir";
     private static final String EMAIL    = "valdir@mail.com";
     private static final String PASSWORD = "123";
+    private static final String VERSION  = "1-1-0";
 
     //Cobertura de classes que tem anotação @NoArgsConstructor
     //Mockar também os Objetos utilizados no Controller
@@ -44,7 +80,15 @@ class UserResourceTest {
     private UserServiceImpl service;
 
     @Mock
-    private ModelMapper mapper;
+    private UserMapper mapper;
+
+    //@Spy - Instância real do ObjectMapper, utilizada na exportação
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    //@Spy - Idempotency-Key com caches em memória criados sob demanda
+    @Spy
+    private IdempotencyKeys idempotencyKeys = new IdempotencyKeys(new ConcurrentMapCacheManager(), new SimpleMeterRegistry());
 
     @BeforeEach
     void setUp() {
@@ -62,10 +106,10 @@ class UserResourceTest {
         //Mockando o retorno do Service.FindById, por qualquer valor inteiro
         when(service.findById(anyInt())).thenReturn(user);
         //Mockando o mapper - caso utilize o mapper para converter uma Classe para DTO/Request
-        when(mapper.map(any(), any())).thenReturn(userDTO);
+        when(mapper.toDTO(any())).thenReturn(userDTO);
 
         //Mockando o retorno do Resource.findById
-        ResponseEntity<UserDTO> response = resource.findById(ID);
+        ResponseEntity<UserDTO> response = resource.findById(ID, new ServletWebRequest(new MockHttpServletRequest()));
 
         /* ***** Verificações ***** */
         //Assegura que o Response não é nulo
@@ -84,18 +128,35 @@ class UserResourceTest {
         assertEquals(PASSWORD, response.getBody().getPassword());
     }
 
+    //FindByID - If-None-Match com a versão atual
+    @Test
+    @DisplayName("Consulta por ID - não modificado")
+    void whenFindByIdWithCurrentETagThenReturnNotModified() {
+        when(service.findVersion(anyInt())).thenReturn(0L);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user/1");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"0\"");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        ResponseEntity<UserDTO> response = resource.findById(ID, new ServletWebRequest(request, servletResponse));
+
+        //Sem corpo e sem carregar o usuário
+        assertNull(response);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), servletResponse.getStatus());
+        assertEquals("\"0\"", servletResponse.getHeader(HttpHeaders.ETAG));
+        verify(service, never()).findById(anyInt());
+    }
+
     //FindAll
     @Test
     @DisplayName("Lista todos os Usuarios - com sucesso")
     void whenFindAllThenReturnAListOfUserDTO() {
         //Mockando o retorno do Service.FindAll, que ira retornar uma lista de usuarios
-        when(service.findAll()).thenReturn(List.of(user));
-
-        //Mockando o mapper - caso utilize o mapper para converter uma Classe para DTO/Request
-        when(mapper.map(any(), any())).thenReturn(userDTO);
+        //O service já retorna a projeção em UserDTO - sem conversão pelo mapper
+        when(service.findAll()).thenReturn(new ArrayList<>(List.of(userDTO)));
+        when(service.findCollectionVersion()).thenReturn(VERSION);
 
         //Mockando o retorno do Resource.findAll
-        ResponseEntity<List<UserDTO>> response = resource.findAll();
+        ResponseEntity<List<UserDTO>> response = resource.findAll(new ServletWebRequest(new MockHttpServletRequest()));
 
         /* ***** Verificações ***** */
         //Assegura que o Response não é nulo
@@ -118,6 +179,98 @@ class UserResourceTest {
         assertEquals(PASSWORD, response.getBody().get(INDEX).getPassword());
     }
 
+    //FindPage
+    @Test
+    @DisplayName("Lista Usuarios paginados - com sucesso")
+    void whenFindPageThenReturnAPageOfUserDTO() {
+        //Mockando o retorno do Service.FindAll paginado
+        when(service.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(userDTO)));
+
+        ResponseEntity<Page<UserDTO>> response = resource.findPage(INDEX, 20);
+
+        /* ***** Verificações ***** */
+        assertNotNull(response);
+        assertNotNull(response.getBody());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getTotalElements());
+        assertEquals(UserDTO.class, response.getBody().getContent().get(INDEX).getClass());
+        assertEquals(ID, response.getBody().getContent().get(INDEX).getId());
+    }
+
+    //FindPage - página e tamanho fora dos limites são ajustados, sem IllegalArgumentException (500)
+    @Test
+    @DisplayName("Lista Usuarios paginados - página e tamanho ajustados")
+    void whenFindPageOutOfBoundsThenClampPageAndSize() {
+        when(service.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(userDTO)));
+
+        resource.findPage(-1, 0);
+        resource.findPage(2, 5000);
+
+        verify(service).findAll(PageRequest.of(0, 1));
+        verify(service).findAll(PageRequest.of(2, UserQueries.MAX_PAGE_SIZE));
+    }
+
+    //FindAllAfter
+    @Test
+    @DisplayName("Lista Usuarios por chave (keyset) - com sucesso")
+    void whenFindAllAfterThenReturnAListOfUserDTO() {
+        //Mockando o retorno do Service.FindAllAfter
+        when(service.findAllAfter(anyInt(), anyInt())).thenReturn(List.of(userDTO));
+
+        ResponseEntity<List<UserDTO>> response = resource.findAllAfter(INDEX, 20);
+
+        /* ***** Verificações ***** */
+        assertNotNull(response);
+        assertNotNull(response.getBody());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().size());
+        assertEquals(ID, response.getBody().get(INDEX).getId());
+        //Verifica que o Service foi chamado com o ID e o limite recebidos
+        verify(service, times(1)).findAllAfter(INDEX, 20);
+    }
+
+    //Search
+    @Test
+    @DisplayName("Busca Usuarios por prefixo do nome - com sucesso")
+    void whenSearchByNameThenReturnAListOfUserDTO() {
+        when(service.searchByName(anyString(), any(), anyInt(), anyInt())).thenReturn(List.of(userDTO));
+
+        ResponseEntity<List<UserDTO>> response = resource.searchByName("Val", null, 0, 20);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().size());
+        assertEquals(NAME, response.getBody().get(INDEX).getName());
+        verify(service, times(1)).searchByName("Val", null, 0, 20);
+    }
+
+    //Export
+    @Test
+    @DisplayName("Exporta Usuarios em NDJSON - com sucesso")
+    @SuppressWarnings("unchecked")
+    void whenExportThenWriteOneLinePerUser() throws IOException {
+        //Mockando o Service.export para entregar dois usuarios ao consumidor
+        doAnswer(invocation -> {
+            Consumer<UserDTO> consumer = invocation.getArgument(0);
+            consumer.accept(userDTO);
+            consumer.accept(userDTO);
+            return null;
+        }).when(service).export(any());
+
+        ResponseEntity<StreamingResponseBody> response = resource.export();
+
+        /* ***** Verificações ***** */
+        assertNotNull(response);
+        assertNotNull(response.getBody());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        //Escreve o corpo da resposta e verifica uma linha por usuario, sem a senha
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":1,\"name\":\"Valdir\",\"email\":\"valdir@mail.com\"}", lines[INDEX]);
+    }
+
     //Create / Save
     @Test
     @DisplayName("Cria Usuario - com sucesso")
@@ -126,7 +279,7 @@ class UserResourceTest {
         when(service.create(any())).thenReturn(user);
 
         //Mockando o retorno do Resource.Create
-        ResponseEntity<UserDTO> response = resource.create(userDTO);
+        ResponseEntity<UserDTO> response = resource.create(null, userDTO);
 
         //Verifica se a classe do response é do tipo ResponseEntity no Response
         assertEquals(ResponseEntity.class, response.getClass());
@@ -136,17 +289,77 @@ class UserResourceTest {
         assertNotNull(response.getHeaders().get("Location"));
     }
 
+    //Create com Idempotency-Key - a repetição devolve o mesmo Location sem chamar o service
+    @Test
+    @DisplayName("Cria Usuario com Idempotency-Key - repetição sem nova criação")
+    void whenCreateIsRetriedWithIdempotencyKeyThenReplayTheFirstResponse() {
+        when(service.create(any())).thenReturn(new User(ID, NAME, EMAIL, PASSWORD));
+
+        ResponseEntity<UserDTO> first = resource.create("chave-1", userDTO);
+        ResponseEntity<UserDTO> retry = resource.create("chave-1", userDTO);
+
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(first.getHeaders().getLocation(), retry.getHeaders().getLocation());
+        assertEquals("false", first.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        verify(service, times(1)).create(any());
+    }
+
+    //Create com Idempotency-Key - a falha não é guardada e a exceção original chega ao handler
+    @Test
+    @DisplayName("Cria Usuario com Idempotency-Key - falha não é guardada")
+    void whenCreateWithIdempotencyKeyFailsThenRethrowAndDoNotStore() {
+        when(service.create(any()))
+                .thenThrow(new DataIntegratyViolationException("E-mail já cadastrado no sistema"))
+                .thenReturn(new User(ID, NAME, EMAIL, PASSWORD));
+
+        assertThrows(DataIntegratyViolationException.class, () -> resource.create("chave-2", userDTO));
+        ResponseEntity<UserDTO> retry = resource.create("chave-2", userDTO);
+
+        assertEquals("false", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        verify(service, times(2)).create(any());
+    }
+
+    //Create com Idempotency-Key reutilizada com outro corpo - rejeitada sem devolver o usuário da primeira
+    @Test
+    @DisplayName("Cria Usuario com Idempotency-Key - outro corpo rejeitado")
+    void whenIdempotencyKeyIsReusedWithAnotherBodyThenThrowMismatch() {
+        when(service.create(any())).thenReturn(new User(ID, NAME, EMAIL, PASSWORD));
+        resource.create("chave-3", userDTO);
+
+        UserDTO other = new UserDTO(null, "Outro", "outro@mail.com", PASSWORD);
+        assertThrows(IdempotencyKeyMismatchException.class, () -> resource.create("chave-3", other));
+        verify(service, times(1)).create(any());
+    }
+
+    //Create em lote
+    @Test
+    @DisplayName("Cria Usuarios em lote - com sucesso")
+    void whenCreateAllThenReturnAResultPerItem() {
+        //Mockando o retorno do Service.createAll com um item criado
+        when(service.createAll(anyList())).thenReturn(List.of(new UserBatchResultDTO(INDEX, ID, EMAIL, 201, null)));
+
+        ResponseEntity<List<UserBatchResultDTO>> response = resource.createAll(List.of(userDTO));
+
+        /* ***** Verificações ***** */
+        assertNotNull(response);
+        assertNotNull(response.getBody());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().size());
+        assertEquals(ID, response.getBody().get(INDEX).getId());
+    }
+
     //Update
     @Test
     @DisplayName("Atualiza Usuario - com sucesso")
     void whenUpdateThenReturnSuccess() {
-        //Mockando o retorno do Service.update, que é utilizada no mapper.map
-        when(service.update(userDTO)).thenReturn(user);
+        //Mockando o retorno do Service.update, que é utilizada no mapper.toDTO - gravado, com a nova versão
+        when(service.update(userDTO)).thenReturn(new User(ID, NAME, EMAIL, PASSWORD, 1L));
         //Mockando o mapper - caso utilize o mapper para converter uma Classe para DTO/Request
-        when(mapper.map(any(), any())).thenReturn(userDTO);
+        when(mapper.toDTO(any())).thenReturn(userDTO);
 
         //Mockando o retorno do Resource.Update
-        ResponseEntity<UserDTO> response = resource.update(ID, userDTO);
+        ResponseEntity<UserDTO> response = resource.update(ID, null, userDTO);
 
         /* ***** Verificações ***** */
         //Assegura que o Response não é nulo
@@ -166,6 +379,35 @@ class UserResourceTest {
         assertEquals(EMAIL, response.getBody().getEmail());
     }
 
+    //Update em write-behind - aceito e gravado depois, sem ETag
+    @Test
+    @DisplayName("Atualiza Usuario em write-behind - aceito")
+    void whenUpdateIsBufferedThenReturnAccepted() {
+        when(service.update(userDTO)).thenReturn(user);
+        when(mapper.toDTO(any())).thenReturn(userDTO);
+
+        ResponseEntity<UserDTO> response = resource.update(ID, null, userDTO);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertNull(response.getHeaders().getETag());
+        assertEquals(ID, response.getBody().getId());
+    }
+
+    //Patch
+    @Test
+    @DisplayName("Atualização parcial - com sucesso")
+    void whenPatchThenReturnSuccessWithETag() {
+        user.setVersion(2L);
+        when(service.patch(ID, userDTO, 1L)).thenReturn(user);
+        when(mapper.toDTO(any())).thenReturn(userDTO);
+
+        ResponseEntity<UserDTO> response = resource.patch(ID, "\"1\"", userDTO);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"2\"", response.getHeaders().getETag());
+        assertEquals(NAME, response.getBody().getName());
+    }
+
     //Delete
     @Test
     @DisplayName("Deleta Usuario - com sucesso")
@@ -189,6 +431,79 @@ class UserResourceTest {
         verify(service, times(1)).delete(anyInt());
     }
 
+    //Importação NDJSON - um objeto por linha, lido sob demanda pelo service
+    @Test
+    @DisplayName("Importa Usuarios de NDJSON - com sucesso")
+    void whenImportNdjsonThenReturnTheImportResult() {
+        List<UserImportReader.Row> rows = new ArrayList<>();
+        when(service.importAll(any())).thenAnswer(invocation -> {
+            Iterator<UserImportReader.Row> iterator = invocation.getArgument(0);
+            iterator.forEachRemaining(rows::add);
+            return new UserImportResultDTO(2L, 1L, 1L, List.of());
+        });
+        String body = "{\"name\":\"" + NAME + "\",\"email\":\"" + EMAIL + "\",\"password\":\"" + PASSWORD + "\"}\n{invalido\n";
+
+        ResponseEntity<UserImportResultDTO> response = resource.importNdjson(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1L, response.getBody().getCreated());
+        assertEquals(2, rows.size());
+        assertEquals(EMAIL, rows.get(0).getUser().getEmail());
+        assertNull(rows.get(0).getError());
+        assertEquals(2, rows.get(1).getLine());
+        assertEquals("JSON inválido", rows.get(1).getError());
+    }
+
+    //Importação NDJSON com a linha "null" - rejeitada como JSON inválido, sem interromper a leitura
+    @Test
+    @DisplayName("Importa Usuarios de NDJSON - linha null rejeitada")
+    void whenImportNdjsonHasANullLineThenRejectTheRow() {
+        List<UserImportReader.Row> rows = new ArrayList<>();
+        when(service.importAll(any())).thenAnswer(invocation -> {
+            Iterator<UserImportReader.Row> iterator = invocation.getArgument(0);
+            iterator.forEachRemaining(rows::add);
+            return new UserImportResultDTO(2L, 1L, 1L, List.of());
+        });
+        String body = "null\n{\"name\":\"" + NAME + "\",\"email\":\"" + EMAIL + "\",\"password\":\"" + PASSWORD + "\"}\n";
+
+        resource.importNdjson(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, rows.size());
+        assertEquals(1, rows.get(0).getLine());
+        assertNull(rows.get(0).getUser());
+        assertEquals("JSON inválido", rows.get(0).getError());
+        assertEquals(EMAIL, rows.get(1).getUser().getEmail());
+        assertNull(rows.get(1).getError());
+    }
+
+    //Eventos de alteração - o long-poll é repassado ao service
+    @Test
+    @DisplayName("Eventos de alteração após o offset")
+    void whenFindEventsAfterThenReturnTheEvents() {
+        UserEventDTO event = new UserEventDTO(5L, UserEvent.Type.CREATED, ID, NAME, EMAIL, 0L, Instant.now());
+        when(service.findEventsAfter(4L, 100, 30000L)).thenReturn(CompletableFuture.completedFuture(List.of(event)));
+
+        List<UserEventDTO> response = resource.findEventsAfter(4L, 100, 30000L).join();
+
+        assertEquals(1, response.size());
+        assertEquals(5L, response.get(0).getId());
+        assertEquals(UserEvent.Type.CREATED, response.get(0).getType());
+    }
+
+    //Delete em lote
+    @Test
+    @DisplayName("Deleta Usuarios em lote - com sucesso")
+    void whenDeleteAllThenReturnTheBatchResult() {
+        when(service.deleteAll(anyList())).thenReturn(new UserBatchDeleteResultDTO(1, List.of(99)));
+
+        ResponseEntity<UserBatchDeleteResultDTO> response = resource.deleteAll(List.of(ID, 99));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getDeleted());
+        assertEquals(List.of(99), response.getBody().getNotFound());
+    }
+
     //Startando os usuarios para terem valor.
     private void startUser() {
         user = new User(ID, NAME, EMAIL,  PASSWORD);
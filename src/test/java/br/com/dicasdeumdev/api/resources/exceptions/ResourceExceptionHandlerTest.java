@@ -2,11 +2,16 @@ package br.com.dicasdeumdev.api.resources.exceptions;
 
 import br.com.dicasdeumdev.api.services.exceptions.DataIntegratyViolationException;
 import br.com.dicasdeumdev.api.services.exceptions.ObjectNotFoundException;
+import br.com.dicasdeumdev.api.services.exceptions.IdempotencyKeyMismatchException;
+import br.com.dicasdeumdev.api.services.exceptions.PreconditionFailedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -22,11 +27,17 @@ class ResourceExceptionHandlerTest {
     //Mockando as Constantes que serao utilizadas
     private static final String OBJETO_NAO_ENCONTRADO = "Objeto não encontrado";
     private static final String E_MAIL_JA_CADASTRADO = "E-mail já cadastrado";
+    private static final String REGISTRO_ALTERADO = "Registro alterado por outra requisição";
+    private static final String CHAVE_REUTILIZADA = "Idempotency-Key já utilizada com outro corpo de requisição";
 
     //@InjectMocks - Cria uma instância real do Objeto
     @InjectMocks
     private ResourceExceptionHandler exceptionHandler;
 
+    //@Spy - Registry real em memória para verificar os contadores de erro
+    @Spy
+    private MeterRegistry registry = new SimpleMeterRegistry();
+
     @BeforeEach
     void setUp() {
         //Iniciar os Mocks da classe informada, nesse caso essa mesma classe
@@ -62,6 +73,8 @@ class ResourceExceptionHandlerTest {
         assertNotEquals("/user/2", response.getBody().getPath());
         //Assegura que a dataHora atual não é igual ao Timestamp do Response
         assertNotEquals(LocalDateTime.now(), response.getBody().getTimestamp());
+        //Assegura que o erro foi contabilizado por tipo de exceção
+        assertEquals(1, registry.counter("api.errors", "exception", "ObjectNotFoundException", "status", "404").count());
     }
 
     @Test
@@ -89,5 +102,33 @@ class ResourceExceptionHandlerTest {
         assertEquals(E_MAIL_JA_CADASTRADO, response.getBody().getError());
         //Assegura que o Status esperado é o mesmo body do Response
         assertEquals(400, response.getBody().getStatus());
+        //Assegura que o erro foi contabilizado por tipo de exceção
+        assertEquals(1, registry.counter("api.errors", "exception", "DataIntegratyViolationException", "status", "400").count());
+    }
+
+    @Test
+    @DisplayName("preconditionFailed")
+    void whenPreconditionFailedExceptionThenReturnAResponseEntity() {
+        ResponseEntity<StandardError> response = exceptionHandler
+                .preconditionFailed(new PreconditionFailedException(REGISTRO_ALTERADO), new MockHttpServletRequest());
+
+        assertNotNull(response.getBody());
+        //Assegura que o StatusHttp esperado é o 412
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatusCode());
+        assertEquals(REGISTRO_ALTERADO, response.getBody().getError());
+        assertEquals(1, registry.counter("api.errors", "exception", "PreconditionFailedException", "status", "412").count());
+    }
+
+    @Test
+    @DisplayName("idempotencyKeyMismatch")
+    void whenIdempotencyKeyMismatchExceptionThenReturnAResponseEntity() {
+        ResponseEntity<StandardError> response = exceptionHandler
+                .idempotencyKeyMismatch(new IdempotencyKeyMismatchException(CHAVE_REUTILIZADA), new MockHttpServletRequest());
+
+        assertNotNull(response.getBody());
+        //Assegura que o StatusHttp esperado é o 422
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals(CHAVE_REUTILIZADA, response.getBody().getError());
+        assertEquals(1, registry.counter("api.errors", "exception", "IdempotencyKeyMismatchException", "status", "422").count());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+package br.com.dicasdeumdev.api.services.impl;
+
+import br.com.dicasdeumdev.api.config.CacheConfig;
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.repositories.UserRepository;
+import br.com.dicasdeumdev.api.services.UserService;
+import br.com.dicasdeumdev.api.services.exceptions.ObjectNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//Cache do UserServiceImpl pelo proxy do Spring - os testes com @InjectMocks chamam a classe diretamente e não o enxergam
+@SpringBootTest
+class UserServiceCachingTest {
+
+    private static final Integer ID      = 1;
+    private static final String NAME     = "Valdir";
+    private static final String EMAIL    = "valdir@mail.com";
+    private static final String PASSWORD = "123";
+
+    @Autowired
+    private UserService service;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    //@MockBean - Repository fictício no contexto do Spring, as consultas podem ser verificadas
+    @MockBean
+    private UserRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.USERS).clear();
+        cacheManager.getCache(CacheConfig.MISSING_USERS).clear();
+        when(repository.findById(ID)).thenReturn(Optional.of(new User(ID, NAME, EMAIL, PASSWORD, 0L)));
+    }
+
+    //Cacheable - a segunda leitura vem do cache, sem consultar o repository
+    @Test
+    void whenFindByIdTwiceThenQueryTheRepositoryOnce() {
+        service.findById(ID);
+        User cached = service.findById(ID);
+
+        assertEquals(NAME, cached.getName());
+        verify(repository, times(1)).findById(ID);
+    }
+
+    //O cache é executado antes do @Timed - um hit não passa pelo timer, que mede só as leituras do banco
+    @Test
+    void whenFindByIdHitsTheCacheThenTheTimerIsNotRecorded() {
+        service.findById(ID);
+        double misses = timerCount("findById");
+
+        service.findById(ID);
+        service.findById(ID);
+
+        assertEquals(misses, timerCount("findById"));
+    }
+
+    //CachePut - o usuário criado já fica no cache
+    @Test
+    void whenCreateThenPutTheUserInTheCache() {
+        when(repository.saveAndFlush(any())).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            user.setId(ID);
+            user.setVersion(0L);
+            return user;
+        });
+
+        service.create(new UserDTO(null, NAME, EMAIL, PASSWORD));
+        User cached = service.findById(ID);
+
+        assertEquals(EMAIL, cached.getEmail());
+        verify(repository, never()).findById(ID);
+    }
+
+    //CacheEvict - depois do update a leitura consulta o repository novamente
+    @Test
+    void whenUpdateThenEvictTheUser() {
+        when(repository.updateById(anyInt(), anyString(), anyString(), anyString())).thenReturn(1);
+        when(repository.findVersionById(ID)).thenReturn(Optional.of(1L));
+        service.findById(ID);
+
+        service.update(new UserDTO(ID, "Outro", EMAIL, PASSWORD));
+        service.findById(ID);
+
+        verify(repository, times(2)).findById(ID);
+    }
+
+    //CacheEvict - depois do delete o usuário não é mais lido do cache
+    @Test
+    void whenDeleteThenEvictTheUser() {
+        when(repository.deleteByIdIn(List.of(ID))).thenReturn(1);
+        service.findById(ID);
+
+        service.delete(ID);
+        when(repository.findById(ID)).thenReturn(Optional.empty());
+
+        assertThrows(ObjectNotFoundException.class, () -> service.findById(ID));
+        verify(repository, times(2)).findById(ID);
+    }
+
+    private double timerCount(String method) {
+        return registry.get("api.user.service").tag("method", method).timer().count();
+    }
+}
@@ -1,25 +1,60 @@
 package br.com.dicasdeumdev.api.services.impl;
 
+import br.com.dicasdeumdev.api.config.CacheConfig;
 import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchDeleteResultDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserBatchResultDTO;
 import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.domain.dto.UserImportResultDTO;
+import br.com.dicasdeumdev.api.mappers.UserMapper;
 import br.com.dicasdeumdev.api.repositories.UserRepository;
 import br.com.dicasdeumdev.api.services.exceptions.DataIntegratyViolationException;
 import br.com.dicasdeumdev.api.services.exceptions.ObjectNotFoundException;
+import br.com.dicasdeumdev.api.services.exceptions.PreconditionFailedException;
+import br.com.dicasdeumdev.api.services.support.EmailIndex;
+import br.com.dicasdeumdev.api.services.support.PasswordHasher;
+import br.com.dicasdeumdev.api.services.support.SingleFlight;
+import br.com.dicasdeumdev.api.services.support.UserEventLog;
+import br.com.dicasdeumdev.api.services.support.UserImportReader;
+import br.com.dicasdeumdev.api.services.support.UserQueries;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
-import org.modelmapper.ModelMapper;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
-
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.hibernate.validator.internal.util.Contracts.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -44,7 +79,46 @@ class UserServiceImplTest {
     private UserRepository repository;
 
     @Mock
-    private ModelMapper mapper;
+    private UserMapper mapper;
+
+    @Mock
+    private EmailIndex emailIndex;
+
+    //@Spy - Instância real, com caches em memória criados sob demanda
+    @Spy
+    private CacheManager cacheManager = new ConcurrentMapCacheManager();
+
+    @Spy
+    private SingleFlight singleFlight = new SingleFlight(new SimpleMeterRegistry());
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Mock
+    private UserEventLog eventLog;
+
+    //Encoder de teste que mantém a senha em texto puro, sem custo de hash
+    private static final PasswordEncoder PLAIN_TEXT = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    };
+
+    //@Spy - Hash sem custo executado na própria thread, as senhas continuam comparáveis nos testes
+    @Spy
+    private PasswordHasher passwordHasher = new PasswordHasher(PLAIN_TEXT, Runnable::run);
 
     private User user;
     private UserDTO userDTO;
@@ -101,34 +175,124 @@ class UserServiceImplTest {
         }
     }
 
+    //Objeto não encontrado - exceção sem stack trace e reaproveitada entre as chamadas
+    @Test
+    void whenFindByIdNotFoundThenThrowAStacklessException() {
+        when(repository.findById(anyInt())).thenReturn(Optional.empty());
+
+        ObjectNotFoundException first = Assertions.assertThrows(ObjectNotFoundException.class, () -> service.findById(ID));
+        ObjectNotFoundException second = Assertions.assertThrows(ObjectNotFoundException.class, () -> service.findById(ID));
+
+        assertEquals(OBJETO_NAO_ENCONTRADO, first.getMessage());
+        assertEquals(0, first.getStackTrace().length);
+        Assertions.assertSame(first, second);
+    }
+
+    //Objeto não encontrado - a segunda consulta do mesmo ID é respondida pelo cache negativo
+    @Test
+    void whenFindByIdMissesTwiceThenQueryTheRepositoryOnce() {
+        when(repository.findById(anyInt())).thenReturn(Optional.empty());
+
+        Assertions.assertThrows(ObjectNotFoundException.class, () -> service.findById(ID));
+        Assertions.assertThrows(ObjectNotFoundException.class, () -> service.findById(ID));
+
+        verify(repository, times(1)).findById(ID);
+    }
+
     //ListAll
     @Test
     void whenFindAllThenReturnAnListOfUsers() {
         //Mockando a resposta do obj
-        //Quando o Repository.FindAll for chamado, retorne uma lista de User (retorno do metodo)
-        when(repository.findAll()).thenReturn(List.of(user));
+        //Quando o Repository.findAllProjected for chamado, retorne uma lista de UserDTO (projeção sem a senha)
+        when(repository.findAllProjected()).thenReturn(List.of(new UserDTO(ID, NAME, EMAIL)));
 
         //com o obj Mockado chame o findAll do service
-        List<User> response = service.findAll();
+        List<UserDTO> response = service.findAll();
 
         //Verifica se o response é nulo
         assertNotNull(response);
         assertEquals(1, response.size());
-        //Assegura que o objeto da classe User é do mesmo tipo do Objeto retornado no index 0
-        assertEquals(User.class, response.get(INDEX).getClass());
+        //Assegura que o objeto da classe UserDTO é do mesmo tipo do Objeto retornado no index 0
+        assertEquals(UserDTO.class, response.get(INDEX).getClass());
 
         //Assegura que o atributo esperado é igual ao atributo do response no index 0
         assertEquals(ID, response.get(INDEX).getId());
         assertEquals(NAME, response.get(INDEX).getName());
         assertEquals(EMAIL, response.get(INDEX).getEmail());
-        assertEquals(PASSWORD, response.get(INDEX).getPassword());
+        //A senha não é consultada
+        Assertions.assertNull(response.get(INDEX).getPassword());
+    }
+
+    //ListAll - Paginado
+    @Test
+    void whenFindAllPagedThenReturnAPageLimitedToMaxPageSize() {
+        //Mockando a resposta do Repository.findAllProjected paginado
+        when(repository.findAllProjected(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(new UserDTO(ID, NAME, EMAIL))));
+
+        Page<UserDTO> response = service.findAll(PageRequest.of(0, 5000));
+
+        assertNotNull(response);
+        assertEquals(1, response.getContent().size());
+        assertEquals(ID, response.getContent().get(INDEX).getId());
+        //Verifica que o tamanho da página enviado ao repository foi limitado
+        verify(repository).findAllProjected(PageRequest.of(0, UserQueries.MAX_PAGE_SIZE, Sort.by("id")));
+    }
+
+    //ListAll - Por chave (keyset)
+    @Test
+    void whenFindAllAfterThenReturnAnListOfUsers() {
+        //Mockando a resposta do Repository para os registros após o ID informado
+        when(repository.findProjectedByIdGreaterThan(anyInt(), any(Pageable.class))).thenReturn(List.of(new UserDTO(ID, NAME, EMAIL)));
+
+        List<UserDTO> response = service.findAllAfter(0, 10);
+
+        assertNotNull(response);
+        assertEquals(1, response.size());
+        assertEquals(ID, response.get(INDEX).getId());
+        verify(repository).findProjectedByIdGreaterThan(0, PageRequest.of(0, 10));
+    }
+
+    //Busca por prefixo do nome - curingas escapados, limite e continuação padrão
+    @Test
+    void whenSearchByNameThenQueryTheEscapedPrefix() {
+        when(repository.searchByName(anyString(), anyString(), anyInt(), any(Pageable.class)))
+                .thenReturn(List.of(new UserDTO(ID, NAME, EMAIL)));
+
+        List<UserDTO> response = service.searchByName("Val_%", null, null, 5000);
+
+        assertEquals(1, response.size());
+        verify(repository).searchByName("Val\\_\\%%", "", 0, PageRequest.of(0, UserQueries.MAX_PAGE_SIZE));
+    }
+
+    //Busca por prefixo do e-mail - continua após o último e-mail recebido
+    @Test
+    void whenSearchByEmailThenContinueAfterTheLastEmail() {
+        when(repository.searchByEmail(anyString(), anyString(), any(Pageable.class))).thenReturn(List.of());
+
+        service.searchByEmail("val", EMAIL, 20);
+
+        verify(repository).searchByEmail("val%", EMAIL, PageRequest.of(0, 20));
+    }
+
+    //Export
+    @Test
+    void whenExportThenConsumeEveryUser() {
+        //Mockando o cursor do Repository com um usuario
+        when(repository.streamAll()).thenReturn(Stream.of(new UserDTO(ID, NAME, EMAIL)));
+
+        List<UserDTO> exported = new ArrayList<>();
+        service.export(exported::add);
+
+        assertEquals(1, exported.size());
+        assertEquals(ID, exported.get(INDEX).getId());
     }
 
     //Create/Save - Sucesso
     @Test
     void whenCreateThenReturnSuccess() {
-        //Mockando a resposta do Repository.save
-        when(repository.save(any())).thenReturn(user);
+        when(mapper.toEntity(any())).thenReturn(new User(null, NAME, EMAIL, PASSWORD));
+        //Mockando a resposta do Repository.saveAndFlush
+        when(repository.saveAndFlush(any())).thenReturn(user);
 
         //Mockando a resposta do Service.create
         User response = service.create(userDTO);
@@ -143,19 +307,24 @@ class UserServiceImplTest {
         assertEquals(NAME, response.getName());
         assertEquals(EMAIL, response.getEmail());
         assertEquals(PASSWORD, response.getPassword());
+        //A senha passa pelo hash antes do INSERT
+        verify(passwordHasher).encode(PASSWORD);
+        //Evento de criação na mesma transação do INSERT
+        verify(eventLog).created(user);
+        verify(transactionManager).commit(any());
     }
 
     //Create/Save - Com Exceção
     @Test
     void whenCreateThenReturnAnDataIntegrityViolationException() {
-        //Mockando retorno do findById do repository que verifica se ja tem algum e-mail salvo
-        when(repository.findByEmail(anyString())).thenReturn(optionalUser);
+        when(mapper.toEntity(any())).thenReturn(user);
+        //Mockando a violação da constraint unique do e-mail no INSERT
+        when(repository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException(E_MAIL_JA_CADASTRADO_NO_SISTEMA));
 
         try{
-            //Força a exceção pois o email ja foi cadastrado no ID =1
-            optionalUser.get().setId(2);
             service.create(userDTO);
-        } catch (Exception ex) {
+            fail();
+        } catch (DataIntegratyViolationException ex) {
 
             //Verifique que a exceção lançada é do mesmo tipo da classe DataIntegratyViolationException
             assertEquals(DataIntegratyViolationException.class, ex.getClass());
@@ -163,13 +332,142 @@ class UserServiceImplTest {
             //Verifique que a mensagem da exceção lançada é igual mensagem da exceção Lançada
             assertEquals(E_MAIL_JA_CADASTRADO_NO_SISTEMA, ex.getMessage());
         }
+        //A unicidade fica a cargo da constraint - nenhuma consulta prévia por e-mail
+        verify(repository, never()).findByEmail(anyString());
+    }
+
+    //Create em lote - e-mails novos, ja cadastrados e repetidos no lote
+    @Test
+    void whenCreateAllThenReturnAResultPerItem() {
+        //Índice sem garantia - todos os e-mails precisam ser consultados
+        when(emailIndex.mightExist(anyString())).thenReturn(true);
+        //Mockando a consulta de e-mails ja cadastrados - apenas o EMAIL existe
+        when(repository.findEmailsIn(anyCollection())).thenReturn(List.of(EMAIL));
+        when(mapper.toEntity(any())).thenAnswer(invocation -> {
+            UserDTO dto = invocation.getArgument(0);
+            return new User(null, dto.getName(), dto.getEmail(), dto.getPassword());
+        });
+        //Mockando o saveAll atribuindo IDs como a sequence faria
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            for (int i = 0; i < users.size(); i++) {
+                users.get(i).setId(10 + i);
+            }
+            return users;
+        });
+
+        List<UserBatchResultDTO> response = service.createAll(List.of(
+                new UserDTO(null, NAME, "novo@mail.com", PASSWORD),
+                new UserDTO(null, NAME, EMAIL, PASSWORD),
+                new UserDTO(null, NAME, "novo@mail.com", PASSWORD)));
+
+        assertEquals(3, response.size());
+        //Item criado recebe o ID gerado
+        assertEquals(10, response.get(0).getId());
+        assertEquals(201, response.get(0).getStatus());
+        //E-mail ja cadastrado no banco
+        assertEquals(400, response.get(1).getStatus());
+        assertEquals(E_MAIL_JA_CADASTRADO_NO_SISTEMA, response.get(1).getError());
+        //E-mail repetido dentro do proprio lote
+        assertEquals(400, response.get(2).getStatus());
+        //Uma unica consulta de e-mails e um unico saveAll para o lote inteiro
+        verify(repository, times(1)).findEmailsIn(anyCollection());
+        verify(repository, times(1)).saveAll(anyList());
+    }
+
+    //Create em lote - item null é rejeitado com 400 e os demais seguem
+    @Test
+    void whenCreateAllWithNullItemThenReturnBadRequestForThatItem() {
+        when(emailIndex.mightExist(anyString())).thenReturn(false);
+        when(mapper.toEntity(any())).thenAnswer(invocation -> {
+            UserDTO dto = invocation.getArgument(0);
+            return new User(null, dto.getName(), dto.getEmail(), dto.getPassword());
+        });
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(created -> created.setId(10));
+            return users;
+        });
+
+        List<UserDTO> objs = new ArrayList<>();
+        objs.add(null);
+        objs.add(new UserDTO(null, NAME, EMAIL, PASSWORD));
+        List<UserBatchResultDTO> response = service.createAll(objs);
+
+        assertEquals(2, response.size());
+        assertEquals(400, response.get(0).getStatus());
+        assertNull(response.get(0).getId());
+        assertEquals(201, response.get(1).getStatus());
+        assertEquals(10, response.get(1).getId());
+    }
+
+    //Create em lote - índice garante que os e-mails são novos
+    @Test
+    void whenCreateAllWithNewEmailsThenDoNotQueryExistingEmails() {
+        when(emailIndex.mightExist(anyString())).thenReturn(false);
+        when(mapper.toEntity(any())).thenAnswer(invocation -> {
+            UserDTO dto = invocation.getArgument(0);
+            return new User(null, dto.getName(), dto.getEmail(), dto.getPassword());
+        });
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setId(ID));
+            return users;
+        });
+
+        List<UserBatchResultDTO> response = service.createAll(List.of(new UserDTO(null, NAME, EMAIL, PASSWORD)));
+
+        assertEquals(201, response.get(0).getStatus());
+        //Nenhuma consulta ao banco e o e-mail criado entra no índice
+        verify(repository, never()).findEmailsIn(anyCollection());
+        verify(emailIndex).add(EMAIL);
+    }
+
+    //Importação - CSV lido linha a linha, erros reportados com o número da linha
+    @Test
+    void whenImportAllThenReturnTotalsAndRowErrors() {
+        when(emailIndex.mightExist(anyString())).thenReturn(true);
+        when(repository.findEmailsIn(anyCollection())).thenReturn(List.of(EMAIL));
+        when(mapper.toEntity(any())).thenAnswer(invocation -> {
+            UserDTO dto = invocation.getArgument(0);
+            return new User(null, dto.getName(), dto.getEmail(), dto.getPassword());
+        });
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setId(ID));
+            return users;
+        });
+        String csv = "email,name,password\n"
+                + "novo@mail.com,Novo,123\n"
+                + EMAIL + "," + NAME + "," + PASSWORD + "\n"
+                + "\n"
+                + "invalido,Nome,123\n"
+                + "outro@mail.com,\"Silva, Luiz\",123\n";
+
+        UserImportResultDTO response = service.importAll(new UserImportReader(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), UserImportReader.Format.CSV, new ObjectMapper()));
+
+        assertEquals(4, response.getProcessed());
+        assertEquals(2, response.getCreated());
+        assertEquals(2, response.getRejected());
+        //E-mail ja cadastrado (linha 3) e e-mail inválido (linha 5)
+        assertEquals(3, response.getErrors().get(0).getIndex());
+        assertEquals(E_MAIL_JA_CADASTRADO_NO_SISTEMA, response.getErrors().get(0).getError());
+        assertEquals(5, response.getErrors().get(1).getIndex());
+        //As linhas válidas formam um único bloco - uma transação e um saveAll
+        verify(transactionManager, times(1)).commit(any());
+        verify(repository, times(1)).saveAll(anyList());
+        verify(entityManager).clear();
+        assertEquals(2, registry.counter("api.user.import.rows", "result", "created").count());
     }
 
     //Update - Com Sucesso
     @Test
     void whenUpdateThenReturnSuccess() {
-        //Mockando a resposta do Repository.save
-        when(repository.save(any())).thenReturn(user);
+        when(mapper.toEntity(any())).thenReturn(user);
+        //Mockando o UPDATE direto - uma linha alterada, versão incrementada
+        when(repository.updateById(anyInt(), anyString(), anyString(), anyString())).thenReturn(1);
+        when(repository.findVersionById(anyInt())).thenReturn(Optional.of(1L));
 
         User response = service.update(userDTO);
 
@@ -179,50 +477,225 @@ class UserServiceImplTest {
         assertEquals(NAME, response.getName());
         assertEquals(EMAIL, response.getEmail());
         assertEquals(PASSWORD, response.getPassword());
+        assertEquals(1L, response.getVersion());
+        //Sem o SELECT + UPDATE do merge
+        verify(repository, never()).saveAndFlush(any());
+    }
+
+    //Update - usuário em cache: o UPDATE condicionado à versão em cache é o único comando
+    @Test
+    void whenUpdateCachedUserThenUseTheCachedVersion() {
+        when(mapper.toEntity(any())).thenReturn(user);
+        cacheManager.getCache(CacheConfig.USERS).put(ID, new User(ID, NAME, EMAIL, PASSWORD, 2L));
+        when(repository.updateByIdAndVersion(anyInt(), anyString(), anyString(), anyString(), anyLong())).thenReturn(1);
+
+        User response = service.update(userDTO);
+
+        assertEquals(3L, response.getVersion());
+        verify(repository).updateByIdAndVersion(ID, NAME, EMAIL, PASSWORD, 2L);
+        verify(repository, never()).updateById(anyInt(), anyString(), anyString(), anyString());
+        verify(repository, never()).findVersionById(anyInt());
+        //O e-mail em cache é o anterior ao UPDATE - o índice recebe os dois
+        verify(emailIndex).replace(EMAIL, EMAIL);
+    }
+
+    //Update - usuário alterado desde a leitura do cache: UPDATE direto e releitura da versão
+    @Test
+    void whenCachedVersionIsStaleThenUpdateById() {
+        when(mapper.toEntity(any())).thenReturn(user);
+        cacheManager.getCache(CacheConfig.USERS).put(ID, new User(ID, NAME, EMAIL, PASSWORD, 2L));
+        when(repository.updateByIdAndVersion(anyInt(), anyString(), anyString(), anyString(), anyLong())).thenReturn(0);
+        when(repository.updateById(anyInt(), anyString(), anyString(), anyString())).thenReturn(1);
+        when(repository.findVersionById(anyInt())).thenReturn(Optional.of(5L));
+
+        User response = service.update(userDTO);
+
+        assertEquals(5L, response.getVersion());
+        verify(repository).updateById(ID, NAME, EMAIL, PASSWORD);
+        //O e-mail em cache não é o anterior ao UPDATE direto
+        verify(emailIndex).replace(null, EMAIL);
+    }
+
+    //Update em write-behind - PUTs do mesmo ID são agrupados e o lote é gravado no flush com uma consulta e um flush
+    @Test
+    void whenUpdateWithWriteBehindThenCoalesceUntilFlush() {
+        ReflectionTestUtils.setField(service, "writeBehind", true);
+        ReflectionTestUtils.setField(service, "maxPendingUpdates", 1000);
+        when(mapper.toEntity(any())).thenAnswer(invocation -> {
+            UserDTO dto = invocation.getArgument(0);
+            return new User(dto.getId(), dto.getName(), dto.getEmail(), dto.getPassword());
+        });
+        //Existência conferida no primeiro PUT de cada ID
+        when(repository.findVersionById(anyInt())).thenReturn(Optional.of(0L));
+        //Entidades gerenciadas do lote - o Hibernate incrementaria a versão no flush
+        User managed = new User(ID, "Antigo", EMAIL, PASSWORD, 0L);
+        User other = new User(2, "Outro", "outro@mail.com", PASSWORD, 0L);
+        when(repository.findAllById(anyIterable())).thenReturn(List.of(managed, other));
+
+        User first = service.update(new UserDTO(ID, "Primeiro", EMAIL, PASSWORD));
+        service.update(new UserDTO(ID, NAME, EMAIL, PASSWORD));
+        service.update(new UserDTO(2, "Segundo", "outro@mail.com", PASSWORD));
+
+        //Ainda não gravado - sem versão e sem consulta das entidades
+        assertEquals(null, first.getVersion());
+        verify(repository, never()).findAllById(anyIterable());
+        verify(repository, times(1)).findVersionById(ID);
+
+        service.flushPendingUpdates();
+        service.flushPendingUpdates();
+
+        //Uma única consulta e um único flush para o lote, somente com o último PUT de cada ID
+        verify(repository, times(1)).findAllById(anyIterable());
+        verify(repository, times(1)).flush();
+        assertEquals(NAME, managed.getName());
+        assertEquals("Segundo", other.getName());
+        //O evento leva a entidade gravada, com a versão do flush, como no PUT direto
+        verify(eventLog).updated(managed);
+        verify(eventLog).updated(other);
+        //E-mails anteriores lidos das entidades - inalterados, o índice não fica desatualizado
+        verify(emailIndex).replace(EMAIL, EMAIL);
+        verify(emailIndex).replace("outro@mail.com", "outro@mail.com");
+        verify(repository, never()).updateById(anyInt(), anyString(), anyString(), anyString());
+        assertEquals(null, first.getVersion());
+        assertEquals("Primeiro", first.getName());
+    }
+
+    //Patch com PUT pendente do mesmo ID - o PUT é gravado antes, senão o flush sobrescreveria o PATCH
+    @Test
+    void whenPatchWithPendingUpdateThenWriteThePendingUpdateFirst() {
+        ReflectionTestUtils.setField(service, "writeBehind", true);
+        ReflectionTestUtils.setField(service, "maxPendingUpdates", 1000);
+        when(mapper.toEntity(any())).thenAnswer(invocation -> {
+            UserDTO dto = invocation.getArgument(0);
+            return new User(dto.getId(), dto.getName(), dto.getEmail(), dto.getPassword());
+        });
+        when(repository.findVersionById(anyInt())).thenReturn(Optional.of(0L));
+        User managed = new User(ID, "Antigo", EMAIL, PASSWORD, 0L);
+        when(repository.findAllById(anyIterable())).thenReturn(List.of(managed));
+        when(repository.findById(anyInt())).thenReturn(optionalUser);
+
+        service.update(new UserDTO(ID, "Pendente", EMAIL, PASSWORD));
+        service.patch(ID, new UserDTO(null, NAME, null, null), null);
+        service.flushPendingUpdates();
+
+        InOrder order = inOrder(repository);
+        order.verify(repository).findAllById(List.of(ID));
+        order.verify(repository).findById(ID);
+        assertEquals("Pendente", managed.getName());
+        verify(repository, times(1)).findAllById(anyIterable());
+    }
+
+    //Patch sem write-behind - nada a gravar antes
+    @Test
+    void whenPatchWithoutWriteBehindThenDoNotTouchTheBuffer() {
+        when(repository.findById(anyInt())).thenReturn(optionalUser);
+
+        service.patch(ID, new UserDTO(null, NAME, null, null), null);
+
+        verify(repository, never()).findAllById(anyIterable());
+        verify(transactionManager, times(1)).getTransaction(any());
     }
 
     //Update - Com Exceção
     @Test
     void whenUpdateThenReturnAnDataIntegrityViolationException() {
-        //Mockando retorno do findByEmail do repository para localizar por e-mail o registro que será alterado
-        when(repository.findByEmail(anyString())).thenReturn(optionalUser);
+        when(mapper.toEntity(any())).thenReturn(user);
+        //Mockando a violação da constraint unique do e-mail no UPDATE
+        when(repository.updateById(anyInt(), anyString(), anyString(), anyString()))
+                .thenThrow(new DataIntegrityViolationException(E_MAIL_JA_CADASTRADO_NO_SISTEMA));
 
         try{
-            optionalUser.get().setId(2);
-            service.create(userDTO);
-        } catch (Exception ex) {
+            service.update(userDTO);
+            fail();
+        } catch (DataIntegratyViolationException ex) {
             //Verifique que a exceção lançada é do mesmo tipo da classe DataIntegratyViolationException
             assertEquals(DataIntegratyViolationException.class, ex.getClass());
             assertEquals(E_MAIL_JA_CADASTRADO_NO_SISTEMA, ex.getMessage());
         }
+        verify(repository, never()).findByEmail(anyString());
     }
 
-    //Delete - Com Sucesso
+    //Update - ID inexistente
     @Test
-    void deleteWithSuccess() {
-        //Mockando retorno do findById do repository para localizar por e-mail o registro que será excluido
+    void whenUpdateThenReturnObjectNotFoundException() {
+        when(mapper.toEntity(any())).thenReturn(user);
+        when(repository.updateById(anyInt(), anyString(), anyString(), anyString())).thenReturn(0);
+        when(repository.findVersionById(anyInt())).thenReturn(Optional.empty());
+
+        Assertions.assertThrows(ObjectNotFoundException.class, () -> service.update(userDTO));
+    }
+
+    //Update condicional (If-Match) - versão confere, a nova versão é calculada sem releitura
+    @Test
+    void whenUpdateWithCurrentVersionThenReturnSuccess() {
+        when(mapper.toEntity(any())).thenReturn(user);
+        when(repository.updateByIdAndVersion(anyInt(), anyString(), anyString(), anyString(), anyLong())).thenReturn(1);
+
+        User response = service.update(userDTO, 3L);
+
+        assertEquals(4L, response.getVersion());
+        verify(repository, never()).findVersionById(anyInt());
+    }
+
+    //Update condicional (If-Match) - registro alterado por outra requisição
+    @Test
+    void whenUpdateWithStaleVersionThenReturnPreconditionFailedException() {
+        when(mapper.toEntity(any())).thenReturn(user);
+        when(repository.updateByIdAndVersion(anyInt(), anyString(), anyString(), anyString(), anyLong())).thenReturn(0);
+        when(repository.findVersionById(anyInt())).thenReturn(Optional.of(4L));
+
+        Assertions.assertThrows(PreconditionFailedException.class, () -> service.update(userDTO, 3L));
+    }
+
+    //Patch - apenas os campos informados são alterados na entidade gerenciada
+    @Test
+    void whenPatchThenChangeOnlyProvidedFields() {
         when(repository.findById(anyInt())).thenReturn(optionalUser);
 
-        //Mockando o repository.deleteById para não lançar exceção caso nao encontre o ID
-        //Mockito.doNothing - não fara nada / Utilizado quando o metodo não tem retorno
-        doNothing().when(repository).deleteById(anyInt());
+        User response = service.patch(ID, new UserDTO(null, "Valdir Cezar", null, null), 0L);
+
+        assertEquals("Valdir Cezar", response.getName());
+        assertEquals(EMAIL, response.getEmail());
+        assertEquals(PASSWORD, response.getPassword());
+        verify(repository).flush();
+        //E-mail não mudou - o índice de e-mails não é alterado
+        verify(emailIndex, never()).add(anyString());
+    }
+
+    //Patch - versão do If-Match diverge da versão atual
+    @Test
+    void whenPatchWithStaleVersionThenReturnPreconditionFailedException() {
+        when(repository.findById(anyInt())).thenReturn(optionalUser);
+
+        Assertions.assertThrows(PreconditionFailedException.class,
+                () -> service.patch(ID, new UserDTO(null, NAME, null, null), 5L));
+        verify(repository, never()).flush();
+    }
+
+    //Delete - Com Sucesso
+    @Test
+    void deleteWithSuccess() {
+        //Mockando o DELETE direto do repository - uma linha excluída
+        when(repository.deleteByIdIn(anyCollection())).thenReturn(1);
 
         service.delete(ID);
 
-        //Verifica no repository quantas vezes o DeleteById foi chamado, s for mais de 1 o metodo esta errado
+        //Verifica no repository quantas vezes o DELETE foi executado, s for mais de 1 o metodo esta errado
         //Mockito.verify - verificação do Mockito
-        verify(repository, times(1)).deleteById(anyInt());
+        verify(repository, times(1)).deleteByIdIn(List.of(ID));
+        //Sem carregar a entidade antes de excluir
+        verify(repository, never()).findById(anyInt());
+        verify(eventLog).deleted(ID);
     }
 
     //Delete - Com Exceção
     @Test
     void whenDeleteThenReturnObjectNotFoundException() {
-        //Mockando retorno do findById do repository para localizar por e-mail o registro que será excluido
-        //Força o laçamento da exceção
-        when(repository.findById(anyInt()))
-                .thenThrow(new ObjectNotFoundException(OBJETO_NAO_ENCONTRADO));
+        //Nenhuma linha excluída - ID inexistente
+        when(repository.deleteByIdIn(anyCollection())).thenReturn(0);
         try {
             service.delete(ID);
+            fail();
         } catch (Exception ex) {
             //Verifique que a exceção lançada é do mesmo tipo da classe ObjectNotFoundException
             assertEquals(ObjectNotFoundException.class, ex.getClass());
@@ -230,10 +703,49 @@ class UserServiceImplTest {
         }
     }
 
+    //Delete em lote - IDs repetidos contam uma vez e os inexistentes são informados
+    @Test
+    void whenDeleteAllThenReturnDeletedCountAndNotFoundIds() {
+        when(repository.findIdsIn(anyCollection())).thenReturn(List.of(1, 2));
+        when(repository.deleteByIdIn(anyCollection())).thenReturn(2);
+
+        UserBatchDeleteResultDTO response = service.deleteAll(List.of(1, 2, 3, 2));
+
+        assertEquals(2, response.getDeleted());
+        assertEquals(List.of(3), response.getNotFound());
+        //Uma consulta e um DELETE para o bloco inteiro
+        verify(repository, times(1)).findIdsIn(List.of(1, 2, 3));
+        verify(repository, times(1)).deleteByIdIn(anyCollection());
+        verify(emailIndex).markStale(2);
+        //Um evento por usuário excluído
+        verify(eventLog).deleted(1);
+        verify(eventLog).deleted(2);
+        verify(eventLog, never()).deleted(3);
+    }
+
+    //Delete em lote - os IDs excluídos saem do cache somente depois do commit
+    @Test
+    void whenDeleteAllThenEvictAfterCommit() {
+        Cache users = cacheManager.getCache(CacheConfig.USERS);
+        users.put(1, user);
+        when(repository.findIdsIn(anyCollection())).thenReturn(List.of(1));
+        when(repository.deleteByIdIn(anyCollection())).thenReturn(1);
+        doAnswer(invocation -> {
+            //No commit o usuário ainda está no cache
+            assertNotNull(users.get(1));
+            return null;
+        }).when(transactionManager).commit(any());
+
+        service.deleteAll(List.of(1));
+
+        verify(transactionManager).commit(any());
+        assertNull(users.get(1));
+    }
+
     //Atribuindo valores para os Objetos para não serem nulos
     private void startUser() {
         user = new User(ID, NAME, EMAIL,  PASSWORD);
         userDTO = new UserDTO(ID, NAME, EMAIL, PASSWORD);
-        optionalUser = Optional.of(new User(ID, NAME, EMAIL, PASSWORD));
+        optionalUser = Optional.of(new User(ID, NAME, EMAIL, PASSWORD, 0L));
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailBloomFilterTest {
+
+    private static final int ELEMENTS = 10_000;
+    private static final double FPP   = 0.01;
+
+    //Todo e-mail inserido deve ser encontrado - o filtro nunca dá falso negativo
+    @Test
+    void whenPutThenMightContainReturnsTrue() {
+        EmailBloomFilter filter = new EmailBloomFilter(ELEMENTS, FPP);
+        for (int i = 0; i < ELEMENTS; i++) {
+            filter.put("user" + i + "@mail.com");
+        }
+
+        for (int i = 0; i < ELEMENTS; i++) {
+            assertTrue(filter.mightContain("user" + i + "@mail.com"));
+        }
+        assertEquals(ELEMENTS, filter.elements());
+        assertFalse(filter.mightContain(null));
+    }
+
+    //A taxa de falsos positivos medida fica próxima da configurada
+    @Test
+    void whenFilledToCapacityThenFalsePositiveRateIsNearTarget() {
+        EmailBloomFilter filter = new EmailBloomFilter(ELEMENTS, FPP);
+        for (int i = 0; i < ELEMENTS; i++) {
+            filter.put("user" + i + "@mail.com");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < ELEMENTS; i++) {
+            if (filter.mightContain("other" + i + "@mail.com")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < ELEMENTS * FPP * 2);
+        assertTrue(filter.expectedFpp() < FPP * 1.5);
+    }
+}
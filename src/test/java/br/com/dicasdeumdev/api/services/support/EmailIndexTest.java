@@ -0,0 +1,102 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import br.com.dicasdeumdev.api.domain.dto.UserDTO;
+import br.com.dicasdeumdev.api.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailIndexTest {
+
+    @InjectMocks
+    private EmailIndex emailIndex;
+
+    @Mock
+    private UserRepository repository;
+
+    @Spy
+    private MeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(emailIndex, "fpp", 0.01);
+        ReflectionTestUtils.setField(emailIndex, "staleRatio", 0.2);
+        ReflectionTestUtils.setField(emailIndex, "rebuildBatch", 2);
+        emailIndex.registerMetrics();
+    }
+
+    //A reconstrução lê os e-mails em blocos por ID, continuando após o último ID de cada bloco
+    @Test
+    void whenRebuildThenReadTheEmailsInBatches() {
+        when(repository.count()).thenReturn(3L);
+        when(repository.findProjectedByIdGreaterThan(0, PageRequest.of(0, 2)))
+                .thenReturn(List.of(user(1, "a@mail.com"), user(4, "b@mail.com")));
+        when(repository.findProjectedByIdGreaterThan(4, PageRequest.of(0, 2)))
+                .thenReturn(List.of(user(9, "c@mail.com")));
+
+        emailIndex.rebuild();
+
+        assertTrue(emailIndex.mightExist("a@mail.com"));
+        assertTrue(emailIndex.mightExist("c@mail.com"));
+        assertFalse(emailIndex.mightExist("novo@mail.com"));
+        verify(repository, times(2)).findProjectedByIdGreaterThan(anyInt(), any());
+    }
+
+    //Alterações sem mudança de e-mail não antecipam a reconstrução
+    @Test
+    void whenReplaceWithTheSameEmailThenDoNotMarkStale() {
+        rebuildWith(user(1, "a@mail.com"));
+
+        emailIndex.replace("a@mail.com", "a@mail.com");
+        //Sem o e-mail anterior, um e-mail que já está no filtro é tratado como inalterado
+        emailIndex.replace(null, "a@mail.com");
+        emailIndex.maintain();
+
+        verify(repository, times(1)).count();
+    }
+
+    //E-mail alterado entra no filtro e o anterior é contado como desatualizado até a reconstrução
+    @Test
+    void whenReplaceWithAnotherEmailThenAddItAndMarkStale() {
+        rebuildWith(user(1, "a@mail.com"));
+
+        emailIndex.replace("a@mail.com", "b@mail.com");
+        assertTrue(emailIndex.mightExist("b@mail.com"));
+
+        //1 desatualizado em 2 elementos passa da proporção de 0.2 - reconstrói
+        when(repository.findProjectedByIdGreaterThan(0, PageRequest.of(0, 2))).thenReturn(List.of(user(1, "b@mail.com")));
+        emailIndex.maintain();
+
+        verify(repository, times(2)).count();
+        assertFalse(emailIndex.mightExist("a@mail.com"));
+    }
+
+    private void rebuildWith(UserDTO user) {
+        when(repository.count()).thenReturn(1L);
+        when(repository.findProjectedByIdGreaterThan(0, PageRequest.of(0, 2))).thenReturn(List.of(user));
+        emailIndex.rebuild();
+    }
+
+    private static UserDTO user(Integer id, String email) {
+        return new UserDTO(id, "Valdir", email);
+    }
+}
@@ -0,0 +1,136 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import br.com.dicasdeumdev.api.config.CacheConfig;
+import br.com.dicasdeumdev.api.services.exceptions.IdempotencyKeyMismatchException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyKeysTest {
+
+    private CacheManager cacheManager;
+    private MeterRegistry registry;
+    private IdempotencyKeys idempotencyKeys;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager();
+        registry = new SimpleMeterRegistry();
+        idempotencyKeys = new IdempotencyKeys(cacheManager, registry);
+    }
+
+    //Requisição simultânea com a mesma chave e o mesmo corpo aguarda a criação em andamento e recebe o mesmo ID
+    //A criação roda fora do cache - nada é guardado antes do sucesso
+    @Test
+    void whenConcurrentRequestWithSameKeyThenCreateOnceAndReplay() throws Exception {
+        AtomicInteger creates = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String fingerprint = idempotencyKeys.fingerprint("Valdir", "valdir@mail.com", "123");
+
+        CompletableFuture<IdempotencyKeys.Result> first = CompletableFuture.supplyAsync(() ->
+                idempotencyKeys.execute("chave", fingerprint, () -> {
+                    creates.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    assertNull(cacheManager.getCache(CacheConfig.IDEMPOTENCY_KEYS).get("chave"));
+                    return 1;
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<IdempotencyKeys.Result> second = CompletableFuture.supplyAsync(() ->
+                idempotencyKeys.execute("chave", fingerprint, () -> creates.incrementAndGet() + 100));
+        awaitCoalesced();
+        release.countDown();
+
+        assertEquals(new IdempotencyKeys.Result(1, false), first.get(5, TimeUnit.SECONDS));
+        assertEquals(new IdempotencyKeys.Result(1, true), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, creates.get());
+    }
+
+    //Chave reutilizada com outro corpo - durante a criação e depois dela
+    @Test
+    void whenKeyIsReusedWithAnotherBodyThenThrowMismatch() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String fingerprint = idempotencyKeys.fingerprint("Valdir", "valdir@mail.com", "123");
+        String other = idempotencyKeys.fingerprint("Outro", "outro@mail.com", "123");
+
+        CompletableFuture<IdempotencyKeys.Result> first = CompletableFuture.supplyAsync(() ->
+                idempotencyKeys.execute("chave", fingerprint, () -> {
+                    started.countDown();
+                    await(release);
+                    return 1;
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertThrows(IdempotencyKeyMismatchException.class, () -> idempotencyKeys.execute("chave", other, () -> 2));
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        assertThrows(IdempotencyKeyMismatchException.class, () -> idempotencyKeys.execute("chave", other, () -> 2));
+    }
+
+    //Falha da criação é repassada para quem aguardava e não é guardada - a próxima requisição cria novamente
+    @Test
+    void whenCreateFailsThenPropagateAndDoNotStore() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("falha");
+
+        CompletableFuture<IdempotencyKeys.Result> first = CompletableFuture.supplyAsync(() ->
+                idempotencyKeys.execute("chave", "corpo", () -> {
+                    started.countDown();
+                    await(release);
+                    throw failure;
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<IdempotencyKeys.Result> second = CompletableFuture.supplyAsync(() ->
+                idempotencyKeys.execute("chave", "corpo", () -> 2));
+        awaitCoalesced();
+        release.countDown();
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertSame(failure, ex.getCause());
+        assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertFalse(idempotencyKeys.execute("chave", "corpo", () -> 3).replayed());
+    }
+
+    //Campos com a mesma concatenação (ou null e vazio) geram impressões digitais diferentes
+    @Test
+    void whenFieldsDifferOnlyInBoundariesThenFingerprintsDiffer() {
+        assertEquals(idempotencyKeys.fingerprint("ab", "c"), idempotencyKeys.fingerprint("ab", "c"));
+        assertNotEquals(idempotencyKeys.fingerprint("ab", "c"), idempotencyKeys.fingerprint("a", "bc"));
+        assertNotEquals(idempotencyKeys.fingerprint("a", null), idempotencyKeys.fingerprint("a", ""));
+    }
+
+    //Aguarda a segunda requisição encontrar a criação em andamento antes de liberá-la
+    private void awaitCoalesced() throws InterruptedException {
+        while (registry.counter("api.idempotency.requests", "result", "coalesced").count() < 1) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
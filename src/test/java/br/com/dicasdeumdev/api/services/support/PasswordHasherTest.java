@@ -0,0 +1,50 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTest {
+
+    private static final String PASSWORD = "123";
+
+    //Custo mínimo do bcrypt - mantém o teste rápido
+    private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+
+    private ExecutorService executor;
+    private PasswordHasher passwordHasher;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        passwordHasher = new PasswordHasher(encoder, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.shutdown();
+    }
+
+    //O hash não guarda a senha original e é validado pelo mesmo encoder
+    @Test
+    void whenHashThenMatch() {
+        String hash = passwordHasher.hash(PASSWORD).join();
+
+        assertNotEquals(PASSWORD, hash);
+        assertTrue(encoder.matches(PASSWORD, hash));
+    }
+
+    //Senha não informada (PATCH sem senha) continua nula
+    @Test
+    void whenEncodeNullThenReturnNull() {
+        assertNull(passwordHasher.encode(null));
+    }
+}
@@ -0,0 +1,33 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PooledIdsTest {
+
+    //Cada valor da sequence é o limite superior de um bloco - os IDs do bloco saem da memória
+    @Test
+    void whenBlockIsAllocatedThenHandOutItsIdsInOrder() {
+        PooledIds ids = new PooledIds(50);
+        assertNull(ids.next());
+
+        assertEquals(52, ids.allocate(101));
+        for (int id = 53; id <= 101; id++) {
+            assertEquals(id, ids.next());
+        }
+        //Bloco esgotado - é preciso ler um novo valor da sequence
+        assertNull(ids.next());
+        assertEquals(102, ids.allocate(151));
+    }
+
+    //Primeiro valor da sequence (1) - o bloco não inclui IDs menores que 1
+    @Test
+    void whenFirstSequenceValueThenStartAtOne() {
+        PooledIds ids = new PooledIds(50);
+
+        assertEquals(1, ids.allocate(1));
+        assertNull(ids.next());
+    }
+}
@@ -0,0 +1,84 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import br.com.dicasdeumdev.api.services.exceptions.ObjectNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    private static final int THREADS = 8;
+
+    private MeterRegistry registry;
+    private SingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight(registry);
+    }
+
+    //Chamadas concorrentes da mesma chave executam a carga uma única vez e recebem o mesmo resultado
+    @Test
+    void whenConcurrentCallsWithSameKeyThenLoadOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            Object value = new Object();
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("findById", 1, () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return value;
+                })));
+            }
+            //Aguarda todas as chamadas chegarem antes de liberar a carga
+            while (registry.counter("api.single_flight.calls", "name", "findById", "result", "coalesced").count() < THREADS - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<Object> result : results) {
+                assertSame(value, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, registry.counter("api.single_flight.calls", "name", "findById", "result", "leader").count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //Exceção da carga é propagada para quem executou e a chave é liberada para a próxima chamada
+    @Test
+    void whenLoaderThrowsThenPropagateAndReleaseKey() {
+        ObjectNotFoundException ex = new ObjectNotFoundException("Objeto não encontrado");
+
+        assertSame(ex, assertThrows(ObjectNotFoundException.class,
+                () -> singleFlight.execute("findById", 1, () -> { throw ex; })));
+        assertEquals("ok", singleFlight.execute("findById", 1, () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
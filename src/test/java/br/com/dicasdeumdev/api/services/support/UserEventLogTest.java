@@ -0,0 +1,192 @@
+package br.com.dicasdeumdev.api.services.support;
+
+import br.com.dicasdeumdev.api.domain.User;
+import br.com.dicasdeumdev.api.domain.UserEvent;
+import br.com.dicasdeumdev.api.domain.dto.UserEventDTO;
+import br.com.dicasdeumdev.api.repositories.UserEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserEventLogTest {
+
+    private static final User USER = new User(1, "Valdir", "valdir@mail.com", "123", 0L);
+    private static final UserEventDTO EVENT = new UserEventDTO(7L, UserEvent.Type.CREATED, 1, "Valdir", "valdir@mail.com", 0L, Instant.now());
+
+    @InjectMocks
+    private UserEventLog eventLog;
+
+    @Mock
+    private UserEventRepository repository;
+
+    @Spy
+    private MeterRegistry registry = new SimpleMeterRegistry();
+
+    //@Spy - Entrega na própria thread
+    @Spy
+    private Executor executor = new SyncTaskExecutor();
+
+    private long sequence;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        //Eventos já gravados até o ID 9999 e saveAll atribuindo os próximos IDs como a sequence faria
+        sequence = 10000;
+        when(repository.findMaxId()).thenReturn(sequence - 1);
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<UserEvent> events = invocation.getArgument(0);
+            events.forEach(event -> event.setId(sequence++));
+            return events;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    //Os eventos só são gravados no commit da transação da alteração
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenTransactionCommitsThenSaveTheEvents() {
+        TransactionSynchronizationManager.initSynchronization();
+        eventLog.created(USER);
+        eventLog.deleted(2);
+        verify(repository, never()).saveAll(anyList());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+        synchronizations.get(0).beforeCommit(false);
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        ArgumentCaptor<List<UserEvent>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        verify(repository).flush();
+        assertEquals(UserEvent.Type.CREATED, saved.getValue().get(0).getType());
+        assertEquals("valdir@mail.com", saved.getValue().get(0).getEmail());
+        assertEquals(UserEvent.Type.DELETED, saved.getValue().get(1).getType());
+        assertEquals(2, saved.getValue().get(1).getUserId());
+    }
+
+    //Evento fora de transação seria gravado sem a alteração
+    @Test
+    void whenNoTransactionThenThrow() {
+        assertThrows(IllegalStateException.class, () -> eventLog.deleted(2));
+    }
+
+    //Sem eventos após o offset o consumidor aguarda o próximo commit
+    @Test
+    void whenPollWithoutEventsThenWaitForTheNextCommit() {
+        when(repository.findAfter(eq(6L), any())).thenReturn(List.of());
+        CompletableFuture<List<UserEventDTO>> events = eventLog.poll(6L, 100, 30000);
+        assertFalse(events.isDone());
+
+        when(repository.findAfter(anyLong(), any())).thenReturn(List.of(EVENT));
+        TransactionSynchronizationManager.initSynchronization();
+        eventLog.created(USER);
+        TransactionSynchronization outbox = TransactionSynchronizationManager.getSynchronizations().get(0);
+        outbox.beforeCommit(false);
+        outbox.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertTrue(events.isDone());
+        assertEquals(List.of(EVENT), events.join());
+    }
+
+    //Consumidor com offset após a janela de MAX_EVENTS do menor offset também é atendido no commit
+    @Test
+    void whenWaiterIsBeyondTheFirstWindowThenDispatchAgain() {
+        long far = UserEventLog.MAX_EVENTS + 500L;
+        when(repository.findAfter(anyLong(), any())).thenReturn(List.of());
+        CompletableFuture<List<UserEventDTO>> near = eventLog.poll(0L, 100, 30000);
+        CompletableFuture<List<UserEventDTO>> behind = eventLog.poll(far, 100, 30000);
+
+        when(repository.findAfter(eq(0L), any())).thenReturn(LongStream.rangeClosed(1, UserEventLog.MAX_EVENTS)
+                .mapToObj(UserEventLogTest::event).collect(Collectors.toList()));
+        when(repository.findAfter(eq(far), any())).thenReturn(List.of(event(far + 1)));
+        TransactionSynchronizationManager.initSynchronization();
+        eventLog.created(USER);
+        TransactionSynchronization outbox = TransactionSynchronizationManager.getSynchronizations().get(0);
+        outbox.beforeCommit(false);
+        outbox.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(100, near.join().size());
+        assertTrue(behind.isDone());
+        assertEquals(far + 1, behind.join().get(0).getId());
+    }
+
+    //Evento confirmado após um ID ainda pendente só é entregue depois do commit (ou rollback) da transação pendente
+    @Test
+    void whenAnEarlierTransactionIsPendingThenHoldBackLaterEvents() {
+        TransactionSynchronizationManager.initSynchronization();
+        eventLog.created(USER);
+        TransactionSynchronization slow = TransactionSynchronizationManager.getSynchronizations().get(0);
+        slow.beforeCommit(false);
+        TransactionSynchronizationManager.unbindResource(eventLog);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        TransactionSynchronizationManager.initSynchronization();
+        eventLog.created(USER);
+        TransactionSynchronization fast = TransactionSynchronizationManager.getSynchronizations().get(0);
+        fast.beforeCommit(false);
+        fast.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        //Só o evento 10001 está confirmado no banco - o 10000 ainda não aparece na consulta
+        when(repository.findAfter(eq(9999L), any())).thenReturn(List.of(event(10001)));
+        CompletableFuture<List<UserEventDTO>> events = eventLog.poll(9999L, 100, 30000);
+        assertFalse(events.isDone());
+
+        when(repository.findAfter(eq(9999L), any())).thenReturn(List.of(event(10000), event(10001)));
+        slow.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertTrue(events.isDone());
+        assertEquals(List.of(10000L, 10001L), events.join().stream().map(UserEventDTO::getId).collect(Collectors.toList()));
+    }
+
+    //Com eventos após o offset a resposta é imediata
+    @Test
+    void whenPollWithEventsThenReturnImmediately() {
+        when(repository.findAfter(eq(6L), any())).thenReturn(List.of(EVENT));
+
+        CompletableFuture<List<UserEventDTO>> events = eventLog.poll(6L, 100, 30000);
+
+        assertTrue(events.isDone());
+        assertEquals(7L, events.join().get(0).getId());
+    }
+
+    private static UserEventDTO event(long id) {
+        return new UserEventDTO(id, UserEvent.Type.CREATED, 1, "Valdir", "valdir@mail.com", 0L, Instant.now());
+    }
+}